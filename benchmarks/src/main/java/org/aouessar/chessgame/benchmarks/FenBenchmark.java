@@ -0,0 +1,67 @@
+package org.aouessar.chessgame.benchmarks;
+
+import org.aouessar.chessgame.core.Position;
+import org.aouessar.chessgame.utils.FENParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and writing FEN, what every restart, save and engine request goes through.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FenBenchmark {
+
+    @Param({"opening", "middlegame", "endgame", "mateInOne"})
+    private String position;
+
+    private final FENParser parser = new FENParser();
+
+    private String fen;
+
+    private Position board;
+
+
+
+    @Setup
+    public void setup() {
+        fen = Positions.fen(position);
+        board = parser.parse(fen);
+    }
+
+
+
+    @Benchmark
+    public Position parse() {
+        return parser.parse(fen);
+    }
+
+
+
+    @Benchmark
+    public String save() {
+        return parser.saveToFENString(board);
+    }
+
+
+
+    @Benchmark
+    public String roundTrip() {
+        return parser.saveToFENString(parser.parse(fen));
+    }
+}
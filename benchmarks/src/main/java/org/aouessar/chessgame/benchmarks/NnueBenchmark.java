@@ -0,0 +1,95 @@
+package org.aouessar.chessgame.benchmarks;
+
+import org.aouessar.chessgame.ai.nnue.Kernels;
+import org.aouessar.chessgame.ai.nnue.Network;
+import org.aouessar.chessgame.ai.nnue.NnueEvaluator;
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Position;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Network evaluations per second with the scalar kernels and each SIMD width. Weights are random,
+ * which costs exactly what trained ones do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class NnueBenchmark {
+
+    @Param({"scalar", "64", "128", "256", "512"})
+    private String kernels;
+
+    @Param({"256"})
+    private int hiddenSize;
+
+    @Param({"middlegame"})
+    private String position;
+
+    private Position board;
+
+    private NnueEvaluator evaluator;
+
+    private int move;
+
+
+
+    @Setup
+    public void setup() {
+        Kernels selected = kernels.equals("scalar") ? Kernels.scalar() : Kernels.vector(Integer.parseInt(kernels));
+        evaluator = new NnueEvaluator(Network.random(hiddenSize, 1), selected);
+        board = Position.fromFen(Positions.fen(position));
+        evaluator.reset(board);
+
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(board, moves);
+        move = moves.isEmpty() ? Move.NONE : moves.get(0);
+    }
+
+
+
+    /**
+     * The work done at a search leaf, the output layer over both accumulators.
+     */
+    @Benchmark
+    public int evaluate() {
+        return evaluator.evaluate(board);
+    }
+
+
+
+    /**
+     * The work done per move, the accumulator update.
+     */
+    @Benchmark
+    public void update() {
+        evaluator.makeMove(board, move);
+        evaluator.unmakeMove();
+    }
+
+
+
+    /**
+     * Both accumulators rebuilt from every piece, the cost the incremental update avoids.
+     */
+    @Benchmark
+    public void refresh() {
+        evaluator.reset(board);
+    }
+}
@@ -0,0 +1,29 @@
+package org.aouessar.chessgame.benchmarks;
+
+import java.util.Map;
+
+/**
+ * Representative positions shared by the benchmarks, selected through a JMH {@code @Param} by name.
+ */
+final class Positions {
+
+    static final Map<String, String> FENS = Map.of(
+            "opening", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "middlegame", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "mateInOne", "r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4"
+    );
+
+
+
+    private Positions() {
+    }
+
+
+
+    static String fen(String name) {
+        String fen = FENS.get(name);
+        if (fen == null) throw new IllegalArgumentException("Unknown position: " + name);
+        return fen;
+    }
+}
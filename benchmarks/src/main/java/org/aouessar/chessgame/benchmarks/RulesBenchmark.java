@@ -0,0 +1,99 @@
+package org.aouessar.chessgame.benchmarks;
+
+import org.aouessar.chessgame.Rules;
+import org.aouessar.chessgame.core.Bitboards;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
+import org.aouessar.chessgame.domain.GameStatus;
+import org.aouessar.chessgame.piece.Piece;
+import org.aouessar.chessgame.piece.factory.PieceFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Legality and check detection on the position of the side to move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulesBenchmark {
+
+    @Param({"opening", "middlegame", "endgame", "mateInOne"})
+    private String position;
+
+    private Position board;
+
+    private final MoveList moves = new MoveList();
+
+    private int[] squares;
+
+
+
+    @Setup
+    public void setup() {
+        board = Position.fromFen(Positions.fen(position));
+
+        int us = board.getSideToMove();
+        squares = new int[board.pieceCount(us)];
+        for (int i = 0; i < squares.length; i++) {
+            squares[i] = board.pieceSquare(us, i);
+        }
+    }
+
+
+
+    @Benchmark
+    public int legalMoves() {
+        MoveGenerator.generateLegalMoves(board, moves);
+        return moves.size();
+    }
+
+
+
+    @Benchmark
+    public boolean isInCheck() {
+        return Rules.isInCheck(board.getSideToMove() == Pieces.WHITE, board);
+    }
+
+
+
+    @Benchmark
+    public GameStatus status() {
+        return Rules.status(board);
+    }
+
+
+
+    /**
+     * Every piece of the side to move tried against every square, the way the UI validates clicks.
+     */
+    @Benchmark
+    public int pieceIsValidMove() {
+        int valid = 0;
+        for (int square : squares) {
+            Piece piece = PieceFactory.of(board.pieceAt(square));
+            for (int row = 0; row < 8; row++) {
+                for (int col = 0; col < 8; col++) {
+                    if (piece.isValidMove(Bitboards.row(square), Bitboards.col(square), row, col, board)) valid++;
+                }
+            }
+        }
+        return valid;
+    }
+}
@@ -0,0 +1,64 @@
+package org.aouessar.chessgame.benchmarks;
+
+import org.aouessar.chessgame.ai.Stockfish;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Position;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Java side of a Stockfish request: the position sent as FEN and a recorded engine answer parsed back into a move.
+ * No engine process is started, only our own overhead is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UciBenchmark {
+
+    // Trimmed output of "go depth 12" on the middlegame position
+    private static final String RESPONSE = """
+            info string NNUE evaluation using nn-b1a57edbea57.nnue enabled
+            info depth 10 seldepth 14 multipv 1 score cp 31 nodes 21342 nps 1219542 hashfull 9 tbhits 0 time 17 pv c3d5 f6d5 c4d5
+            info depth 11 seldepth 16 multipv 1 score cp 28 nodes 35710 nps 1231379 hashfull 14 tbhits 0 time 29 pv c3d5 f6d5 c4d5 c6d4
+            info depth 12 seldepth 17 multipv 1 score cp 35 nodes 52871 nps 1258833 hashfull 21 tbhits 0 time 42 pv c3d5 f6d5 c4d5 c6d4 f3d4
+            bestmove c3d5 ponder f6d5
+            """;
+
+    private final MoveList legalMoves = new MoveList();
+
+    private Position position;
+
+
+
+    @Setup
+    public void setup() {
+        position = Position.fromFen(Positions.fen("middlegame"));
+    }
+
+
+
+    @Benchmark
+    public String positionCommand() {
+        return "position fen " + position.toFen();
+    }
+
+
+
+    @Benchmark
+    public int parseBestMove() {
+        return Stockfish.parseBestMove(RESPONSE, position, legalMoves);
+    }
+}
@@ -1,6 +1,8 @@
 module org.aouessar.chessgame {
     requires javafx.controls;
     requires javafx.fxml;
+    requires jdk.management;
+    requires static jdk.incubator.vector;
 
     requires org.kordamp.ikonli.javafx;
     requires org.kordamp.bootstrapfx.core;
@@ -12,4 +14,5 @@ module org.aouessar.chessgame {
     exports org.aouessar.chessgame.domain;
     opens org.aouessar.chessgame.domain to javafx.fxml;
     exports org.aouessar.chessgame.piece;
+    exports org.aouessar.chessgame.core;
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+package org.aouessar.chessgame;
+
+import org.aouessar.chessgame.core.Bitboards;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Perft;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
+import org.aouessar.chessgame.piece.Piece;
+import org.aouessar.chessgame.piece.factory.PieceFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * Regression check that the rules hot paths do not allocate once warmed up. Each workload runs on the reference
+ * positions, first to let the JIT settle, then under the per-thread allocation counter of the JVM. What reading the
+ * counter costs is measured on an empty workload and taken off, so a passing workload allocates nothing.
+ */
+final class AllocationCheck {
+
+    private static final int WARMUP_CALLS = 200_000;
+
+    private static final int MEASURED_CALLS = 200_000;
+
+    // Tolerance over the whole measured loop, far below one object per thousand calls
+    static final long NOISE_BYTES = 256;
+
+    // Results are folded in here so the JIT cannot drop the calls
+    private static int sink;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final Position[] positions = Perft.REFERENCES.stream()
+            .map(reference -> Position.fromFen(reference.fen()))
+            .toArray(Position[]::new);
+
+    private final MoveList moves = new MoveList();
+
+    private int next;
+
+
+
+    boolean isSupported() {
+        return threads.isThreadAllocatedMemorySupported();
+    }
+
+
+
+    /**
+     * Prints the bytes allocated by every workload over the measured calls.
+     * @return true if none of them allocates
+     */
+    boolean run() {
+        if (!isSupported()) {
+            System.out.println("Allocation counter not supported by this JVM, skipped");
+            return true;
+        }
+
+        boolean passed = true;
+        for (Map.Entry<String, Long> entry : measure().entrySet()) {
+            boolean ok = entry.getValue() <= NOISE_BYTES;
+            passed &= ok;
+            System.out.printf("%-16s %s  %d bytes over %d calls%n", entry.getKey(), ok ? "OK  " : "FAIL", entry.getValue(), MEASURED_CALLS);
+        }
+        return passed;
+    }
+
+
+
+    /**
+     * @return the bytes each workload allocated over the measured calls, beyond the cost of reading the counter
+     */
+    Map<String, Long> measure() {
+        Map<String, IntSupplier> workloads = new LinkedHashMap<>();
+        workloads.put("check detection", () -> {
+            Position position = position();
+            return Rules.isInCheck(position.getSideToMove() == Pieces.WHITE, position) ? 1 : 0;
+        });
+        workloads.put("legal moves", () -> {
+            MoveGenerator.generateLegalMoves(position(), moves);
+            return moves.size();
+        });
+        workloads.put("move validation", () -> {
+            // The per-click check of the UI: the piece on a square tried against every destination
+            Position position = position();
+            int from = position.pieceSquare(position.getSideToMove(), next % position.pieceCount(position.getSideToMove()));
+            Piece piece = PieceFactory.of(position.pieceAt(from));
+            int valid = 0;
+            for (int to = 0; to < 64; to++) {
+                if (piece.isValidMove(Bitboards.row(from), Bitboards.col(from), Bitboards.row(to), Bitboards.col(to), position)) valid++;
+            }
+            return valid;
+        });
+        workloads.put("make/unmake", () -> {
+            Position position = position();
+            MoveGenerator.generateLegalMoves(position, moves);
+            for (int i = 0; i < moves.size(); i++) {
+                position.makeMove(moves.get(i));
+                position.unmakeMove();
+            }
+            return moves.size();
+        });
+        workloads.put("game status", () -> Rules.status(position()).ordinal());
+
+        long baseline = allocated(() -> 0);
+        Map<String, Long> excess = new LinkedHashMap<>();
+        workloads.forEach((name, workload) -> excess.put(name, Math.max(0, allocated(workload) - baseline)));
+        return excess;
+    }
+
+
+
+    private long allocated(IntSupplier workload) {
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            sink += workload.getAsInt();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            sink += workload.getAsInt();
+        }
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+
+
+    private Position position() {
+        next = (next + 1) % (positions.length * 64);
+        return positions[next / 64];
+    }
+}
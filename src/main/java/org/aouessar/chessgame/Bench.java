@@ -0,0 +1,73 @@
+package org.aouessar.chessgame;
+
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Perft;
+import org.aouessar.chessgame.core.Position;
+
+import java.util.List;
+
+/**
+ * Quick health check of a build on a host: walks the move tree of a fixed set of positions to a fixed depth,
+ * generating the legal moves and classifying the game state of every node. The node count is the signature,
+ * it only changes when the rules do, while nodes per second compares machines and builds.
+ */
+public class Bench {
+
+    public static final int DEFAULT_DEPTH = 4;
+
+    private static final List<String> POSITIONS = List.of(
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4",
+            "8/8/1k6/8/2pP4/8/5BK1/8 b - d3 0 1",
+            "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1",
+            "8/P7/8/8/8/8/k6K/8 w - - 0 1"
+    );
+
+    public record Result(int positions, long nodes, long nanos) {
+
+        @Override
+        public String toString() {
+            return "Positions: " + positions + " | " + Perft.report(nodes, nanos) + " | Signature: " + nodes;
+        }
+    }
+
+
+
+    public static Result run(int depth) {
+        MoveList[] lists = new MoveList[depth + 1];
+        for (int i = 0; i <= depth; i++) {
+            lists[i] = new MoveList();
+        }
+
+        long nodes = 0;
+        long start = System.nanoTime();
+        for (String fen : POSITIONS) {
+            nodes += walk(Position.fromFen(fen), depth, lists);
+        }
+        return new Result(POSITIONS.size(), nodes, System.nanoTime() - start);
+    }
+
+
+
+    private static long walk(Position position, int depth, MoveList[] lists) {
+        // Classified first, like after every move of a game, then expanded
+        if (Rules.status(position).isOver() || depth == 0) return 1;
+
+        MoveList moves = lists[depth];
+        MoveGenerator.generateLegalMoves(position, moves);
+
+        long nodes = 1;
+        for (int i = 0; i < moves.size(); i++) {
+            position.makeMove(moves.get(i));
+            nodes += walk(position, depth - 1, lists);
+            position.unmakeMove();
+        }
+        return nodes;
+    }
+}
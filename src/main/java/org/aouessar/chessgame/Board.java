@@ -6,11 +6,20 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.shape.Rectangle;
 import lombok.Getter;
 import lombok.Setter;
+import org.aouessar.chessgame.ai.Engine;
+import org.aouessar.chessgame.ai.JavaEngine;
 import org.aouessar.chessgame.ai.Stockfish;
-import org.aouessar.chessgame.piece.factory.King;
-import org.aouessar.chessgame.piece.factory.Pawn;
+import org.aouessar.chessgame.book.OpeningBook;
+import org.aouessar.chessgame.core.Bitboards;
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
+import org.aouessar.chessgame.piece.factory.PieceFactory;
 import org.aouessar.chessgame.piece.Piece;
-import org.aouessar.chessgame.piece.factory.Rook;
+import org.aouessar.chessgame.tablebase.Syzygy;
+import org.aouessar.chessgame.tablebase.Tablebase;
 import org.aouessar.chessgame.ui.GameUI;
 import org.aouessar.chessgame.utils.FENParser;
 
@@ -22,15 +31,16 @@ import java.util.Objects;
 @Setter
 public class Board {
 
-    private GridPane grid;
+    private static final String STOCKFISH_PATH = "C:\\Users\\u200159\\Desktop\\Workspace\\personnal\\chess-game\\ChessGame\\src\\main\\resources\\public\\stockfish\\stockfish-windows-x86-64-avx2.exe";
 
-    private Piece[][] board;
+    private GridPane grid;
 
-    private Piece whiteKing;
+    private Position position;
 
-    private Piece blackKing;
+    private final MoveList legalMoves;
 
-    private Piece selectedPiece;
+    // Square of the piece picked by the player, -1 when none
+    private int selectedSquare;
 
     private final GameState gameState;
 
@@ -40,18 +50,35 @@ public class Board {
 
     private final Map<Character, Image> pieceImages;
 
-    private final Stockfish stockfish;
+    private Engine engine;
 
     private int skillLevel;
 
     private int computationDepth;
 
+    // Transposition table size of the engine in MB
+    private int hashSize = JavaEngine.DEFAULT_HASH_MB;
+
+    // Search threads of the engine
+    private int threads = 1;
+
+    // Opening book played from while the position is in it, null when none is configured
+    private OpeningBook book;
+
+    // Endgame tables played before asking the engine, null when none are configured
+    private Tablebase tablebase;
+
+    // Syzygy tables, asked once few enough pieces are left, null when none are configured
+    private Syzygy syzygy;
+
 
 
     public Board(int tileSize, int width, int height, GridPane gridPane) {
-        this.selectedPiece = null;
+        this.selectedSquare = -1;
         this.grid = gridPane;
 
+        this.legalMoves = new MoveList();
+
         this.pieceImages = new HashMap<>();
         loadPieceImages();
 
@@ -61,13 +88,14 @@ public class Board {
         this.parser = new FENParser();
 
         this.ui.renderBoard();
-        this.board = this.parser.initializePieces("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", gameState, this);
+        this.position = Position.fromFen(Position.START_FEN);
+        this.ui.syncPieces(position);
         this.ui.addAnnotations();
 
         skillLevel = 12;
         computationDepth = 15;
 
-        this.stockfish = new Stockfish("C:\\Users\\u200159\\Desktop\\Workspace\\personnal\\chess-game\\ChessGame\\src\\main\\resources\\public\\stockfish\\stockfish-windows-x86-64-avx2.exe");
+        useEngine("stockfish");
         makeAIMove();
     }
 
@@ -79,21 +107,23 @@ public class Board {
             return;
         }
 
-        if (selectedPiece == null && board[row][col] != null) {
-            if (board[row][col].isWhite() != gameState.isWhiteTurn()) {
+        Piece clickedPiece = pieceAt(Bitboards.square(row, col));
+
+        if (selectedSquare < 0 && clickedPiece != null) {
+            if (clickedPiece.isWhite() != gameState.isWhiteTurn()) {
                 ChessGame.handleMessage("It's " + (gameState.isWhiteTurn() ? "White" : "Black") + "'s turn.");
                 return;
             }
 
-            selectedPiece = board[row][col];
+            selectedSquare = Bitboards.square(row, col);
             this.ui.highlightTile(rect);
-            ChessGame.handleMessage("Piece selected at (" + row + ", " + col + "): " + (selectedPiece.getColor().name() + " " + selectedPiece.getClass().getSimpleName()));
+            ChessGame.handleMessage("Piece selected at (" + row + ", " + col + "): " + clickedPiece.getLabel());
         }
-        else if (selectedPiece != null) {
-            if (board[row][col] != null && board[row][col].isFriendlyPiece(selectedPiece.getRow(), selectedPiece.getCol(), board)) {
-                selectedPiece = board[row][col];
+        else if (selectedSquare >= 0) {
+            if (clickedPiece != null && clickedPiece.isFriendlyPiece(Bitboards.row(selectedSquare), Bitboards.col(selectedSquare), position)) {
+                selectedSquare = Bitboards.square(row, col);
                 this.ui.highlightTile(rect);
-                ChessGame.handleMessage("Piece selection changed at (" + row + ", " + col + "): " + (selectedPiece.getColor().name() + " " + selectedPiece.getClass().getSimpleName()));
+                ChessGame.handleMessage("Piece selection changed at (" + row + ", " + col + "): " + clickedPiece.getLabel());
             }
             else {
                 //humain joue blanc
@@ -108,99 +138,132 @@ public class Board {
 
 
     public boolean move(int endRow, int endCol) {
-        if (selectedPiece == null) return false;
+        return move(endRow, endCol, Pieces.NONE);
+    }
+
+
+
+    public boolean move(int endRow, int endCol, int promotion) {
+        if (selectedSquare < 0) return false;
+
+        return move(Move.of(selectedSquare, Bitboards.square(endRow, endCol), promotion));
+    }
+
+
+
+    /**
+     * Plays a move given by its squares and promotion if it is one of the legal moves of the position.
+     * A promotion without a piece asks the player which one to take.
+     */
+    public boolean move(int requested) {
+        int from = Move.from(requested);
+        int to = Move.to(requested);
+        Piece piece = pieceAt(from);
+        if (piece == null) return false;
 
-        if (selectedPiece.isWhite() != gameState.isWhiteTurn()) {
+        if (piece.isWhite() != gameState.isWhiteTurn()) {
             ChessGame.handleMessage("It's " + (gameState.isWhiteTurn() ? "White" : "Black") + "'s turn.");
             return false;
         }
 
-        if(!selectedPiece.isValidMove(selectedPiece.getRow(), selectedPiece.getCol(), endRow, endCol, board)){
-            ChessGame.handleMessage("Invalid move for " + (selectedPiece.getColor().name() + " " + selectedPiece.getClass().getSimpleName()));
-            return false;
+        MoveGenerator.generateLegalMoves(position, legalMoves);
+
+        int promotion = Move.promotion(requested);
+        if (promotion == Pieces.NONE && legalMoves.find(from, to, Pieces.QUEEN) != Move.NONE) {
+            promotion = ui.choosePromotion(piece.isWhite());
         }
 
-        // Check if the move prevents the king from being in check
-        if (!Rules.doesMovePreventCheck(selectedPiece, endRow, endCol, gameState.getHEIGHT(), gameState.getWIDTH(), board)) {
-            ChessGame.flashTile(getKingsTurn(), grid);
-            ChessGame.handleMessage("Move not allowed: it leaves the king in check.");
+        int move = legalMoves.find(from, to, promotion);
+
+        if (move == Move.NONE) {
+            int endRow = Bitboards.row(to);
+            int endCol = Bitboards.col(to);
+            if(!piece.isValidMove(Bitboards.row(from), Bitboards.col(from), endRow, endCol, position)){
+                ChessGame.handleMessage("Invalid move for " + piece.getLabel());
+            } else {
+                // The piece can go there, but the king would be left in check
+                int king = position.kingSquare(position.getSideToMove());
+                ChessGame.flashTile(Bitboards.row(king), Bitboards.col(king), grid);
+                ChessGame.handleMessage("Move not allowed: it leaves the king in check.");
+            }
             return false;
         }
 
+        selectedSquare = -1;
+        play(move);
 
-        if(board[endRow][endCol] != null) {
-            parser.setHalfMoveClock(0); //we captured a piece we reset the clock
-            this.ui.removePieceFromGrid(board[endRow][endCol]);
-        }
-
-        board[endRow][endCol] = selectedPiece;
-        board[selectedPiece.getRow()][selectedPiece.getCol()] = null;
+        return true;
+    }
 
-        this.ui.removePieceFromGrid(selectedPiece);
 
-        if(selectedPiece instanceof King) {
-            if (Math.abs(endCol - selectedPiece.getCol()) == 2) {
-                ((King)selectedPiece).performCastlingMove(endRow, endCol, this);
-                parser.updateCastlingRights(selectedPiece);
-            }
-            selectedPiece.setHasMoved(true);
 
-        }
+    /**
+     * Applies a legal move to the position, then refreshes the view and reports how the game goes on.
+     * The rules only live in {@link Position}, the board just mirrors it.
+     */
+    private void play(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = position.pieceAt(from);
+        String color = Pieces.color(piece) == Pieces.WHITE ? "WHITE" : "BLACK";
 
-        selectedPiece.setCol(endCol);
-        selectedPiece.setRow(endRow);
-        this.ui.addPieceToGrid(selectedPiece);
+        position.makeMove(move);
+        gameState.setWhiteTurn(position.getSideToMove() == Pieces.WHITE);
 
+        this.ui.syncPieces(position);
+        this.ui.resetHighlight();
+        this.ui.clearThreats();
 
-        if(selectedPiece instanceof Pawn) {
-            // Check for promotion
-            if (((Pawn) selectedPiece).isPromotionRow()) {
-                ((Pawn) selectedPiece).promotePawn(this);
-            }
-            parser.setHalfMoveClock(0); //pawn moves so we reset the clock
-        } else {
-            parser.incrementHalfMoveClock();
+        if (Move.isCastling(move)) {
+            ChessGame.handleMessage(color + " King castling performed " + (to > from ? "King's" : "Queen's") + " side");
         }
-
-        if(selectedPiece instanceof Rook) {
-            selectedPiece.setHasMoved(true);
-            parser.updateCastlingRights(selectedPiece);
+        if (Move.isPromotion(move)) {
+            ChessGame.handleMessage(color + " Pawn promoted to " + pieceAt(to).getTypeName());
         }
 
-        selectedPiece = null;
+        gridToConsole();
 
-        gameState.switchTurn();
+        switch (Rules.status(position)) {
+            case CHECK -> ChessGame.handleMessage((gameState.isWhiteTurn() ? "White" : "Black") + " King's in check");
 
-        if(gameState.isWhiteTurn()) parser.incrementFullMoveNumber();
+            case CHECKMATE -> {
+                ChessGame.handleMessage((gameState.isWhiteTurn() ? "White" : "Black") + " King's in check");
+                ChessGame.handleMessage((!gameState.isWhiteTurn() ? "White" : "Black") + " Wins");
+                gameState.setGameOver(true);
+                ChessGame.showCheckmatePopup(this, "Game Over", "Checkmate !", currentPlayerColor() + " Wins !", Alert.AlertType.CONFIRMATION);
+            }
 
-        this.ui.resetHighlight();
-        gridToConsole();
+            case STALEMATE -> {
+                ChessGame.handleMessage("Stalemate detected, game is a Draw");
+                gameState.setGameOver(true);
+                ChessGame.showCheckmatePopup(this, "Game Over", "Stalemate !", "This is a DRAW !", Alert.AlertType.INFORMATION);
+            }
 
-        if(Rules.isCheckmate(gameState.isWhiteTurn(), gameState.getHEIGHT(), gameState.getWIDTH(), board)){
-            ChessGame.handleMessage((!gameState.isWhiteTurn() ? "White" : "Black") + " Wins");
-            gameState.setGameOver(true);
-            ChessGame.showCheckmatePopup(this, "Game Over", "Checkmate !", currentPlayerColor() + " Wins !", Alert.AlertType.CONFIRMATION);
+            case DRAW -> {
+                String reason = Rules.drawReason(position);
+                ChessGame.handleMessage("Draw by " + reason);
+                gameState.setGameOver(true);
+                ChessGame.showCheckmatePopup(this, "Game Over", "Draw !", "Draw by " + reason + " !", Alert.AlertType.INFORMATION);
+            }
 
-        } else if(Rules.isStalemate(gameState.isWhiteTurn(), gameState.getHEIGHT(), gameState.getWIDTH(), board)){
-            ChessGame.handleMessage("Stalemate detected, game is a Draw");
-            gameState.setGameOver(true);
-            ChessGame.showCheckmatePopup(this, "Game Over", "Stalemate !", "This is a DRAW !", Alert.AlertType.INFORMATION);
+            default -> { }
         }
-
-        return true;
     }
 
 
 
     public void restartGame(String fen) {
-        gameState.setWhiteTurn(true);
+        Position restarted = parser.parse(fen);
+        if (restarted == null) return;
+
+        position = restarted;
+        gameState.setWhiteTurn(position.getSideToMove() == Pieces.WHITE);
         gameState.setGameOver(false);
-        selectedPiece = null;
+        selectedSquare = -1;
         this.ui.setHighlightedTile(null);
-        parser.resetFen();
         gridToConsole();
         this.ui.renderBoard();
-        board = parser.initializePieces(fen, gameState, this);
+        this.ui.syncPieces(position);
         this.ui.addAnnotations();
         makeAIMove();
         ChessGame.handleMessage("-------------- Game RESTARTED --------------");
@@ -237,8 +300,8 @@ public class Board {
 
 
 
-    private Piece getKingsTurn() {
-        return gameState.isWhiteTurn() ? whiteKing : blackKing;
+    private Piece pieceAt(int square) {
+        return PieceFactory.of(position.pieceAt(square));
     }
 
 
@@ -249,26 +312,13 @@ public class Board {
 
 
 
-    public Piece setWhiteKing(Piece whiteKing) {
-        this.whiteKing = whiteKing;
-        return whiteKing;
-    }
-
-
-
-    public Piece setBlackKing(Piece blackKing) {
-        this.blackKing = blackKing;
-        return blackKing;
-    }
-
-
-
     private void gridToConsole() {
         System.out.println("_______________________________");
         for (int row = 0; row < gameState.getHEIGHT(); row++) {
             System.out.print("| ");
             for (int col = 0; col < gameState.getWIDTH(); col++) {
-                if(board[row][col] != null) System.out.print(board[row][col].getName() + " | ");
+                int piece = position.pieceAt(Bitboards.square(row, col));
+                if(piece != Pieces.NONE) System.out.print(Pieces.toChar(piece) + " | ");
                 else System.out.print("  | ");
             }
             System.out.println();
@@ -280,24 +330,71 @@ public class Board {
     }
 
 
-    public boolean makeAIMove() {
-        if (stockfish != null) {
-            // Convert the current board state to FEN
-            String fen = parser.saveToFENString(gameState.isWhiteTurn(), board);
-
-            // Get the best move from Stockfish
-            String bestMove = stockfish.getBestMove(fen, computationDepth, skillLevel);
-
-            if (bestMove != null) {
-                // Parse the move and update the board
-                int startRow = 8 - Character.getNumericValue(bestMove.charAt(1));
-                int startCol = bestMove.charAt(0) - 'a';
-                int endRow = 8 - Character.getNumericValue(bestMove.charAt(3));
-                int endCol = bestMove.charAt(2) - 'a';
-
-                selectedPiece = board[startRow][startCol];
-                return move(endRow, endCol);
+    /**
+     * Switches the computer player between the Stockfish binary and the in-process Java engine.
+     * Stockfish falls back to the Java engine when its binary cannot be started.
+     */
+    public void useEngine(String name) {
+        if (name.equalsIgnoreCase("stockfish")) {
+            Stockfish stockfish = new Stockfish(STOCKFISH_PATH);
+            if (stockfish.isReady()) {
+                useEngine(stockfish);
+                return;
             }
+            System.err.println("Stockfish could not be started, using the Java engine");
+        }
+        useEngine(new JavaEngine());
+    }
+
+
+
+    public void useEngine(Engine next) {
+        if (engine != null) engine.close();
+        engine = next;
+        engine.setHashSize(hashSize);
+        // Engines accept different ranges, keep what the next one can run
+        threads = Math.min(threads, engine.getMaxThreads());
+        engine.setThreads(threads);
+    }
+
+
+
+    public void setHashSize(int megabytes) {
+        engine.setHashSize(megabytes);
+        hashSize = megabytes;
+    }
+
+
+
+    public void setThreads(int count) {
+        engine.setThreads(count);
+        threads = count;
+    }
+
+
+
+    public boolean makeAIMove() {
+        // Book moves and positions the tables cover are played straight away, without searching
+        int bestMove = book != null ? book.pickMove(position) : Move.NONE;
+
+        if (bestMove == Move.NONE && tablebase != null) {
+            bestMove = tablebase.bestMove(position);
+        }
+
+        int pieces = position.pieceCount(Pieces.WHITE) + position.pieceCount(Pieces.BLACK);
+        if (bestMove == Move.NONE && syzygy != null && pieces <= syzygy.getMaxPieces()) {
+            bestMove = syzygy.bestMove(position);
+        }
+
+        if (bestMove == Move.NONE && engine != null) {
+            // Get the best move from the engine, already checked against the legal moves
+            bestMove = engine.getBestMove(position, computationDepth, skillLevel);
+        }
+
+        if (bestMove != Move.NONE) {
+            selectedSquare = -1;
+            play(bestMove);
+            return true;
         }
         return false;
     }
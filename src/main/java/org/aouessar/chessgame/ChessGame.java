@@ -16,7 +16,6 @@ import javafx.scene.shape.Rectangle;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 import javafx.util.Duration;
-import org.aouessar.chessgame.piece.Piece;
 
 public class ChessGame extends Application {
 
@@ -105,9 +104,7 @@ public class ChessGame extends Application {
 
 
 
-    public static Rectangle findRectangleInGrid(Piece king, GridPane grid) {
-        int targetRow = king.getRow();
-        int targetCol = king.getCol();
+    public static Rectangle findRectangleInGrid(int targetRow, int targetCol, GridPane grid) {
 
         for (Node node : grid.getChildren()) {
             // Directly fetch and compare row and column indices
@@ -128,14 +125,14 @@ public class ChessGame extends Application {
 
 
 
-    public static void flashTile(Piece king, GridPane grid) {
+    public static void flashTile(int row, int col, GridPane grid) {
         if (isAnimating) {
             return;
         }
 
         isAnimating = true;
 
-        Rectangle rectangle = findRectangleInGrid(king, grid);
+        Rectangle rectangle = findRectangleInGrid(row, col, grid);
 
         // Store the original color
         assert rectangle != null;
@@ -144,7 +141,7 @@ public class ChessGame extends Application {
         Rectangle tempRectangle = new Rectangle(TILE_SIZE, TILE_SIZE);
         tempRectangle.setFill(originalColor);
         tempRectangle.setOpacity(0.5);
-        grid.add(tempRectangle, king.getCol(), king.getRow());
+        grid.add(tempRectangle, col, row);
 
         Timeline timeline = new Timeline();
 
@@ -1,24 +1,52 @@
 package org.aouessar.chessgame;
 
+import javafx.application.Platform;
+import org.aouessar.chessgame.ai.JavaEngine;
+import org.aouessar.chessgame.ai.MateSolver;
+import org.aouessar.chessgame.ai.nnue.Kernels;
+import org.aouessar.chessgame.ai.nnue.Network;
+import org.aouessar.chessgame.ai.nnue.NnueEvaluator;
+import org.aouessar.chessgame.book.OpeningBook;
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.Perft;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
+import org.aouessar.chessgame.tablebase.Syzygy;
+import org.aouessar.chessgame.tablebase.Tablebase;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
 public class CommandLine {
 
+    private static final int MATE_HASH_MB = 64;
+
+    private static final long MATE_NODE_LIMIT = 50_000_000;
+
+    private static final int PERFT_HASH_MB = 64;
+
+
     public void execute(String command, Board board) {
         if (command == null || command.trim().isEmpty()) {
             ChessGame.handleMessage("Command invalid");
             return ;
         }
 
+        // Moves are the common case, they go to the board before the command is split
+        if (isValidMoveFormat(command)) {
+            board.move(parseMoveCommand(command));
+            return;
+        }
+
         String[] parts = command.trim().split("\\s+");
         String mainCommand = parts[0];
 
         switch(mainCommand.toLowerCase()) {
-            case "reset" -> board.restartGame("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+            case "reset" -> board.restartGame(Position.START_FEN);
 
             case "save" -> {
-                String fen = board.getParser().saveToFENString(
-                    board.getGameState().isWhiteTurn(),
-                    board.getBoard()
-                );
+                String fen = board.getParser().saveToFENString(board.getPosition());
                 ChessGame.handleMessage(fen);
             }
 
@@ -56,39 +84,230 @@ public class CommandLine {
                 }
             }
 
-            default -> {
-                if(isValidMoveFormat(command)){
-                    int[] coordinates = parseMoveCommand(command);
-                    board.setSelectedPiece(board.getBoard()[coordinates[0]][coordinates[1]]);
-                    board.move(coordinates[2],coordinates[3]);
+            case "hash" -> {
+                try {
+                    board.setHashSize(Integer.parseInt(parts[1]));
+                    ChessGame.handleMessage("Hash: " + board.getHashSize() + " MB");
+
+                } catch (IllegalStateException e) {
+                    ChessGame.handleMessage(e.getMessage() + ", still " + board.getHashSize() + " MB");
+                } catch (Exception e) {
+                    ChessGame.handleMessage("Command invalid : ex -> hash 256 -> size in MB");
+                }
+            }
+
+            case "threads" -> {
+                try {
+                    board.setThreads(Integer.parseInt(parts[1]));
+                    ChessGame.handleMessage("Threads: " + board.getThreads());
+
+                } catch (Exception e) {
+                    ChessGame.handleMessage("Command invalid : ex -> threads 8 -> range[1," + board.getEngine().getMaxThreads() + "]");
+                }
+            }
+
+            case "engine" -> {
+                if (parts.length == 2 && (parts[1].equalsIgnoreCase("java") || parts[1].equalsIgnoreCase("stockfish"))) {
+                    board.useEngine(parts[1]);
+                    ChessGame.handleMessage("Engine: " + board.getEngine().getClass().getSimpleName());
+                } else if (parts.length == 3 && parts[1].equalsIgnoreCase("nnue")) {
+                    try {
+                        Network network = Network.load(Path.of(parts[2]));
+                        board.useEngine(new JavaEngine(() -> new NnueEvaluator(network)));
+                        ChessGame.handleMessage("Engine: NNUE " + network.getHiddenSize() + " hidden, " + Kernels.best().name());
+                    } catch (IOException e) {
+                        ChessGame.handleMessage("Cannot load network: " + e.getMessage());
+                    }
                 } else {
-                    ChessGame.handleMessage("Command invalid");
+                    ChessGame.handleMessage("Command invalid : ex -> engine java | engine stockfish | engine nnue net.bin");
+                }
+            }
+
+            case "book" -> {
+                if (parts.length == 2 && parts[1].equalsIgnoreCase("off")) {
+                    board.setBook(null);
+                    ChessGame.handleMessage("Book: off");
+                } else if (parts.length == 2) {
+                    try {
+                        OpeningBook book = new OpeningBook(Path.of(parts[1]));
+                        board.setBook(book);
+                        ChessGame.handleMessage("Book: " + book.getCount() + " entries");
+                    } catch (IOException e) {
+                        ChessGame.handleMessage("Cannot read book: " + e.getMessage());
+                    }
+                } else {
+                    ChessGame.handleMessage("Command invalid : ex -> book book.bin | book off");
+                }
+            }
+
+            case "tablebase" -> {
+                if (parts.length == 2 && parts[1].equalsIgnoreCase("off")) {
+                    board.setTablebase(null);
+                    ChessGame.handleMessage("Tablebase: off");
+                } else if (parts.length == 2) {
+                    board.setTablebase(new Tablebase(Path.of(parts[1])));
+                    ChessGame.handleMessage("Tablebase: " + board.getTablebase().getDirectory().toAbsolutePath());
+                } else {
+                    ChessGame.handleMessage("Command invalid : ex -> tablebase tables | tablebase off");
+                }
+            }
+
+            case "syzygy" -> {
+                if (parts.length == 2 && parts[1].equalsIgnoreCase("off")) {
+                    board.setSyzygy(null);
+                    ChessGame.handleMessage("Syzygy: off");
+                } else if (parts.length == 2) {
+                    try {
+                        Syzygy syzygy = new Syzygy(Path.of(parts[1]));
+                        board.setSyzygy(syzygy);
+                        ChessGame.handleMessage("Syzygy: " + syzygy.getTableCount() + " tables, up to " + syzygy.getMaxPieces() + " pieces");
+                    } catch (IOException e) {
+                        ChessGame.handleMessage("Cannot read tables: " + e.getMessage());
+                    }
+                } else {
+                    ChessGame.handleMessage("Command invalid : ex -> syzygy /path/to/syzygy | syzygy off");
+                }
+            }
+
+            case "threats" -> {
+                // Squares the opponent of the side to move attacks
+                int opponent = board.getPosition().getSideToMove() ^ 1;
+                board.getUi().showThreats(board.getPosition().attackedBy(opponent));
+            }
+
+            case "perft", "divide" -> {
+                try {
+                    runPerft(board.getPosition(), Integer.parseInt(parts[1]), mainCommand.equalsIgnoreCase("divide"));
+
+                } catch (Exception e) {
+                    ChessGame.handleMessage("Command invalid : ex -> perft 5 | divide 4");
                 }
             }
+
+            case "mate" -> {
+                try {
+                    runMate(board.getPosition(), Integer.parseInt(parts[1]));
+
+                } catch (Exception e) {
+                    ChessGame.handleMessage("Command invalid : ex -> mate 3 -> range[1," + MateSolver.MAX_MOVES + "]");
+                }
+            }
+
+            case "bench" -> {
+                try {
+                    runBench(parts.length > 1 ? Integer.parseInt(parts[1]) : Bench.DEFAULT_DEPTH);
+
+                } catch (Exception e) {
+                    ChessGame.handleMessage("Command invalid : ex -> bench | bench 5");
+                }
+            }
+
+            default -> ChessGame.handleMessage("Command invalid");
         }
     }
 
 
 
+    /**
+     * Counts on a snapshot of the current position in the background, the board stays usable meanwhile.
+     */
+    private void runPerft(Position position, int depth, boolean divide) {
+        Position snapshot = Position.fromFen(position.toFen());
+        ChessGame.handleMessage((divide ? "divide " : "perft ") + depth + " running...");
+
+        Thread worker = new Thread(() -> {
+            // Built per command, so the subtree cache is only allocated while counting
+            Perft perft = new Perft(Runtime.getRuntime().availableProcessors(), PERFT_HASH_MB);
+            long start = System.nanoTime();
+            StringBuilder output = new StringBuilder();
+            long nodes = 0;
+            if (divide) {
+                for (Map.Entry<String, Long> entry : perft.divide(snapshot, depth).entrySet()) {
+                    output.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+                    nodes += entry.getValue();
+                }
+            } else {
+                nodes = perft.perft(snapshot, depth);
+            }
+            output.append(Perft.report(nodes, System.nanoTime() - start));
+            Platform.runLater(() -> ChessGame.handleMessage(output.toString()));
+        }, "perft");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+
+
+    /**
+     * Looks for a forced mate of the side to move in the background, giving up after {@link #MATE_NODE_LIMIT} nodes.
+     */
+    private void runMate(Position position, int moves) {
+        if (moves < 1 || moves > MateSolver.MAX_MOVES) throw new IllegalArgumentException("Mate length out of range: " + moves);
+        Position snapshot = position.copy();
+        ChessGame.handleMessage("mate " + moves + " running...");
+
+        Thread worker = new Thread(() -> {
+            String result = new MateSolver(MATE_HASH_MB).solve(snapshot, moves, MATE_NODE_LIMIT).toString();
+            Platform.runLater(() -> ChessGame.handleMessage(result));
+        }, "mate");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+
+
+    private void runBench(int depth) {
+        ChessGame.handleMessage("bench " + depth + " running...");
+
+        Thread worker = new Thread(() -> {
+            String result = Bench.run(depth).toString();
+            Platform.runLater(() -> ChessGame.handleMessage(result));
+        }, "bench");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+
+
+    /**
+     * Matches "e2 e4" or "e7 e8q" char by char, without a regex.
+     */
     private boolean isValidMoveFormat(String command) {
-        return command != null && command.matches("^[a-h][1-8] [a-h][1-8]$");
+        int length = command.length();
+        if (length != 5 && length != 6) return false;
+
+        return isSquare(command, 0) && command.charAt(2) == ' ' && isSquare(command, 3)
+                && (length == 5 || "qrbn".indexOf(command.charAt(5)) >= 0);
+    }
+
+
+
+    private static boolean isSquare(String command, int index) {
+        char file = command.charAt(index);
+        char rank = command.charAt(index + 1);
+        return file >= 'a' && file <= 'h' && rank >= '1' && rank <= '8';
     }
 
 
 
-    public int[] parseMoveCommand(String command) {
-        // Split the command into start and end positions
-        String[] positions = command.split(" ");
-        String start = positions[0];
-        String end = positions[1];
+    /**
+     * Packs a typed move such as "e2 e4" or "e7 e8q", castling and en passant flags are resolved by the board.
+     * The command is read in place, nothing is split or copied.
+     */
+    public int parseMoveCommand(String command) {
+        int from = square(command, 0);
+        int to = square(command, 3);
+
+        // Optional promotion piece, ex: "e7 e8q"
+        int promotion = command.length() > 5 ? Pieces.type(Pieces.fromChar(command.charAt(5))) : Pieces.NONE;
+
+        return Move.of(from, to, promotion);
+    }
+
 
-        // Convert chess notation to row and column indices
-        int startCol = start.charAt(0) - 'a'; // 'a' -> 0, 'b' -> 1, ..., 'h' -> 7
-        int startRow = 8 - Character.getNumericValue(start.charAt(1)); // '1' -> 7, ..., '8' -> 0
-        int endCol = end.charAt(0) - 'a';
-        int endRow = 8 - Character.getNumericValue(end.charAt(1));
 
-        return new int[]{startRow, startCol, endRow, endCol};
+    private static int square(String command, int index) {
+        return (command.charAt(index + 1) - '1') * 8 + command.charAt(index) - 'a';
     }
 
 }
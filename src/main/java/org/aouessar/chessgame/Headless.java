@@ -0,0 +1,231 @@
+package org.aouessar.chessgame;
+
+import org.aouessar.chessgame.ai.JavaEngine;
+import org.aouessar.chessgame.ai.MateSolver;
+import org.aouessar.chessgame.ai.nnue.Kernels;
+import org.aouessar.chessgame.ai.nnue.Network;
+import org.aouessar.chessgame.ai.nnue.NnueEvaluator;
+import org.aouessar.chessgame.book.OpeningBook;
+import org.aouessar.chessgame.book.PolyglotKey;
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.Perft;
+import org.aouessar.chessgame.core.Position;
+import org.aouessar.chessgame.tablebase.Material;
+import org.aouessar.chessgame.tablebase.Syzygy;
+import org.aouessar.chessgame.tablebase.TablebaseGenerator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line entry point that never starts JavaFX, for servers and scripts:
+ * <pre>
+ * java -cp ChessGame.jar org.aouessar.chessgame.Headless perft 5 [fen]
+ * java -cp ChessGame.jar org.aouessar.chessgame.Headless divide 4 [fen]
+ * java -cp ChessGame.jar org.aouessar.chessgame.Headless verify
+ * java -cp ChessGame.jar org.aouessar.chessgame.Headless bench [depth]
+ * java -cp ChessGame.jar org.aouessar.chessgame.Headless alloc
+ * java -cp ChessGame.jar org.aouessar.chessgame.Headless search 10 [fen]
+ * java -cp ChessGame.jar org.aouessar.chessgame.Headless mate 3 [fen]
+ * java -cp ChessGame.jar org.aouessar.chessgame.Headless tbgen tables KQvK KRvK KPvK KQvKR
+ * java -cp ChessGame.jar org.aouessar.chessgame.Headless syzygy /path/to/syzygy [fen]
+ * java -cp ChessGame.jar org.aouessar.chessgame.Headless book book.bin [fen]
+ * </pre>
+ * Options {@code --threads=N} and {@code --hash=MB} may appear anywhere, they default to every core and 64 MB.
+ * {@code --nnue=file} makes {@code search} evaluate with that network.
+ */
+public class Headless {
+
+    private static int threads = Runtime.getRuntime().availableProcessors();
+
+    private static int hashMegabytes = 64;
+
+    private static Path network;
+
+
+
+    public static void main(String[] args) {
+        String[] words = Arrays.stream(args).filter(arg -> !parseOption(arg)).toArray(String[]::new);
+        if (words.length == 0) {
+            usage();
+            return;
+        }
+
+        try {
+            switch (words[0].toLowerCase()) {
+                case "perft" -> perft(words, false);
+                case "divide" -> perft(words, true);
+                case "verify" -> System.exit(verify() & new AllocationCheck().run() ? 0 : 1);
+                case "alloc" -> System.exit(new AllocationCheck().run() ? 0 : 1);
+                case "bench" -> System.out.println(Bench.run(words.length > 1 ? Integer.parseInt(words[1]) : Bench.DEFAULT_DEPTH));
+                case "search" -> search(words);
+                case "mate" -> mate(words);
+                case "tbgen" -> tablebases(words);
+                case "syzygy" -> syzygy(words);
+                case "book" -> book(words);
+                default -> usage();
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+
+
+
+    private static boolean parseOption(String arg) {
+        if (arg.startsWith("--threads=")) {
+            threads = Integer.parseInt(arg.substring("--threads=".length()));
+            return true;
+        }
+        if (arg.startsWith("--hash=")) {
+            hashMegabytes = Integer.parseInt(arg.substring("--hash=".length()));
+            return true;
+        }
+        if (arg.startsWith("--nnue=")) {
+            network = Path.of(arg.substring("--nnue=".length()));
+            return true;
+        }
+        return false;
+    }
+
+
+
+    private static void perft(String[] words, boolean divide) {
+        if (words.length < 2) throw new IllegalArgumentException("Missing depth, ex: perft 5");
+
+        int depth = Integer.parseInt(words[1]);
+        String fen = words.length > 2 ? String.join(" ", Arrays.copyOfRange(words, 2, words.length)) : Position.START_FEN;
+        Position position = Position.fromFen(fen);
+        Perft perft = new Perft(threads, hashMegabytes);
+
+        long start = System.nanoTime();
+        long nodes = 0;
+        if (divide) {
+            for (Map.Entry<String, Long> entry : perft.divide(position, depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+        } else {
+            nodes = perft.perft(position, depth);
+        }
+        System.out.println(Perft.report(nodes, System.nanoTime() - start));
+    }
+
+
+
+    private static void search(String[] words) throws IOException {
+        if (words.length < 2) throw new IllegalArgumentException("Missing depth, ex: search 10");
+
+        int depth = Integer.parseInt(words[1]);
+        String fen = words.length > 2 ? String.join(" ", Arrays.copyOfRange(words, 2, words.length)) : Position.START_FEN;
+        JavaEngine engine;
+        if (network != null) {
+            Network weights = Network.load(network);
+            engine = new JavaEngine(() -> new NnueEvaluator(weights));
+            System.out.println("NNUE " + weights.getHiddenSize() + " hidden, " + Kernels.best().name() + " kernels");
+        } else {
+            engine = new JavaEngine();
+        }
+        engine.setHashSize(hashMegabytes);
+        engine.setThreads(threads);
+
+        long start = System.nanoTime();
+        int move = engine.getBestMove(Position.fromFen(fen), depth, JavaEngine.MAX_SKILL);
+        System.out.println("Best move: " + Move.toUci(move) + " | Score: " + engine.getSearch().getScore()
+                + " | Depth: " + engine.getSearch().getCompletedDepth());
+        System.out.println(Perft.report(engine.getNodes(), System.nanoTime() - start));
+    }
+
+
+
+    private static void mate(String[] words) {
+        if (words.length < 2) throw new IllegalArgumentException("Missing number of moves, ex: mate 3");
+
+        int moves = Integer.parseInt(words[1]);
+        String fen = words.length > 2 ? String.join(" ", Arrays.copyOfRange(words, 2, words.length)) : Position.START_FEN;
+        System.out.println(new MateSolver(hashMegabytes).solve(Position.fromFen(fen), moves, Long.MAX_VALUE));
+    }
+
+
+
+    /**
+     * Generates the named tables and the smaller ones they need into a directory, skipping tables already there.
+     */
+    private static void tablebases(String[] words) throws IOException {
+        if (words.length < 3) throw new IllegalArgumentException("Missing directory or tables, ex: tbgen tables KQvK KRvK");
+
+        TablebaseGenerator generator = new TablebaseGenerator(Path.of(words[1]), threads);
+        for (int i = 2; i < words.length; i++) {
+            generator.generate(Material.parse(words[i]));
+        }
+    }
+
+
+
+    private static void syzygy(String[] words) throws IOException {
+        if (words.length < 2) throw new IllegalArgumentException("Missing directory, ex: syzygy /path/to/syzygy [fen]");
+
+        Syzygy syzygy = new Syzygy(Path.of(words[1]));
+        String fen = words.length > 2 ? String.join(" ", Arrays.copyOfRange(words, 2, words.length)) : Position.START_FEN;
+        Position position = Position.fromFen(fen);
+
+        int wdl = syzygy.probeWdl(position);
+        if (wdl == Syzygy.NOT_FOUND) {
+            System.out.println("No table among " + syzygy.getTableCount() + " (up to " + syzygy.getMaxPieces() + " pieces)");
+            return;
+        }
+        // Without the .rtbz file only the win/draw/loss value is known
+        int dtz = syzygy.probeDtz(position);
+        int move = syzygy.bestMove(position);
+        System.out.println("wdl " + wdl + "  dtz " + (dtz == Syzygy.NOT_FOUND ? "-" : dtz)
+                + "  bestmove " + (move == Move.NONE ? "-" : Move.toUci(move)));
+    }
+
+
+
+    private static void book(String[] words) throws IOException {
+        if (words.length < 2) throw new IllegalArgumentException("Missing book, ex: book book.bin [fen]");
+
+        OpeningBook book = new OpeningBook(Path.of(words[1]));
+        String fen = words.length > 2 ? String.join(" ", Arrays.copyOfRange(words, 2, words.length)) : Position.START_FEN;
+        Position position = Position.fromFen(fen);
+
+        List<OpeningBook.Entry> entries = book.entries(position);
+        int total = entries.stream().mapToInt(OpeningBook.Entry::weight).sum();
+        System.out.printf("key %016x  %d moves%n", PolyglotKey.of(position), entries.size());
+        for (OpeningBook.Entry entry : entries) {
+            System.out.printf("%-6s %6d  %5.1f%%%n", Move.toUci(entry.move()), entry.weight(),
+                    total == 0 ? 0.0 : 100.0 * entry.weight() / total);
+        }
+    }
+
+
+
+    private static boolean verify() {
+        boolean passed = true;
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            // A fresh table per position, so a cache bug cannot hide behind another position's entries
+            Perft perft = new Perft(threads, hashMegabytes);
+
+            long start = System.nanoTime();
+            long nodes = perft.perft(Position.fromFen(reference.fen()), reference.depth());
+            boolean ok = nodes == reference.nodes();
+            passed &= ok;
+
+            System.out.printf("%-11s depth %d  %s  expected %d  %s%n", reference.name(), reference.depth(),
+                    ok ? "OK  " : "FAIL", reference.nodes(), Perft.report(nodes, System.nanoTime() - start));
+        }
+        System.out.println(passed ? "All reference positions match" : "Reference mismatch");
+        return passed;
+    }
+
+
+
+    private static void usage() {
+        System.out.println("Usage: Headless [--threads=N] [--hash=MB] [--nnue=file] perft <depth> [fen] | divide <depth> [fen] | verify | bench [depth] | alloc | search <depth> [fen] | mate <moves> [fen] | tbgen <dir> <tables...> | syzygy <dir> [fen] | book <file> [fen]");
+    }
+}
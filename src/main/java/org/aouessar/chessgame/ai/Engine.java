@@ -0,0 +1,30 @@
+package org.aouessar.chessgame.ai;
+
+import org.aouessar.chessgame.core.Position;
+
+/**
+ * Something that picks a move for the side to move, an external UCI process or the in-process search.
+ */
+public interface Engine {
+
+    /**
+     * @param depth maximum search depth in plies
+     * @param skillLevel playing strength from 0 to 20, the way Stockfish's "Skill Level" option reads it
+     * @return a legal move of the position, or {@link org.aouessar.chessgame.core.Move#NONE} if there is none
+     */
+    int getBestMove(Position position, int depth, int skillLevel);
+
+    /**
+     * Resizes the transposition table, clearing it.
+     */
+    void setHashSize(int megabytes);
+
+    /**
+     * @throws IllegalArgumentException outside 1 to {@link #getMaxThreads()}
+     */
+    void setThreads(int threads);
+
+    int getMaxThreads();
+
+    void close();
+}
@@ -0,0 +1,204 @@
+package org.aouessar.chessgame.ai;
+
+import org.aouessar.chessgame.core.Bitboards;
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
+
+/**
+ * Static evaluation in centipawns, from the point of view of the side to move.
+ * Material and piece-square sums are built once at the root, then every move copies them one ply up and updates
+ * the squares it touched. Pawn structure terms are cached by pawn placement, which changes far less often than
+ * the position. Middlegame and endgame scores are blended by the material left on the board.
+ * One instance serves a single search thread.
+ */
+public final class Evaluation implements Evaluator {
+
+    // Indexed by piece type, used to order captures
+    public static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+    private static final int DOUBLED_MIDGAME = -10;
+
+    private static final int DOUBLED_ENDGAME = -20;
+
+    private static final int ISOLATED_MIDGAME = -10;
+
+    private static final int ISOLATED_ENDGAME = -15;
+
+    // Passed pawn bonus by rank, counted from the pawn's own side
+    private static final int[] PASSED_MIDGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+
+    private static final int[] PASSED_ENDGAME = {0, 10, 20, 35, 60, 100, 150, 0};
+
+    private static final long[] FILES = new long[8];
+
+    private static final long[] ADJACENT_FILES = new long[8];
+
+    // Squares in front of a pawn, on its file and the adjacent ones, that no enemy pawn may occupy for it to be passed
+    private static final long[][] PASSED_SPANS = new long[2][64];
+
+    private static final int PAWN_CACHE_BITS = 14;
+
+    static {
+        for (int file = 0; file < 8; file++) {
+            FILES[file] = Bitboards.FILE_A << file;
+        }
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = (file > 0 ? FILES[file - 1] : 0L) | (file < 7 ? FILES[file + 1] : 0L);
+        }
+        for (int square = 0; square < 64; square++) {
+            long span = FILES[square & 7] | ADJACENT_FILES[square & 7];
+            int rank = square >>> 3;
+            PASSED_SPANS[Pieces.WHITE][square] = rank == 7 ? 0L : span & (-1L << ((rank + 1) * 8));
+            PASSED_SPANS[Pieces.BLACK][square] = span & ((1L << (rank * 8)) - 1);
+        }
+    }
+
+
+
+    // Material and piece-square sums from white's point of view by ply, see PieceSquareTables
+    private final int[] midgame = new int[Search.MAX_PLY + 1];
+
+    private final int[] endgame = new int[Search.MAX_PLY + 1];
+
+    private final int[] phase = new int[Search.MAX_PLY + 1];
+
+    private int ply;
+
+    // Direct mapped: white and black pawns of each entry, then its packed pawn structure score
+    private final long[] pawnKeys = new long[2 << PAWN_CACHE_BITS];
+
+    private final int[] pawnScores = new int[1 << PAWN_CACHE_BITS];
+
+
+
+    @Override
+    public void reset(Position position) {
+        ply = 0;
+        midgame[0] = 0;
+        endgame[0] = 0;
+        phase[0] = 0;
+        for (int square = 0; square < 64; square++) {
+            int piece = position.pieceAt(square);
+            if (piece != Pieces.NONE) add(piece, square);
+        }
+    }
+
+
+
+    @Override
+    public void makeMove(Position position, int move) {
+        midgame[ply + 1] = midgame[ply];
+        endgame[ply + 1] = endgame[ply];
+        phase[ply + 1] = phase[ply];
+        ply++;
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = position.pieceAt(from);
+        int us = Pieces.color(piece);
+
+        remove(piece, from);
+        if (Move.isEnPassant(move)) {
+            remove(Pieces.make(us ^ 1, Pieces.PAWN), to + (us == Pieces.WHITE ? -8 : 8));
+        } else if (position.pieceAt(to) != Pieces.NONE) {
+            remove(position.pieceAt(to), to);
+        }
+        add(Move.isPromotion(move) ? Pieces.make(us, Move.promotion(move)) : piece, to);
+
+        if (Move.isCastling(move)) {
+            int rook = Pieces.make(us, Pieces.ROOK);
+            boolean kingside = to > from;
+            remove(rook, kingside ? from + 3 : from - 4);
+            add(rook, kingside ? from + 1 : from - 1);
+        }
+    }
+
+
+
+    @Override
+    public void unmakeMove() {
+        ply--;
+    }
+
+
+
+    @Override
+    public int evaluate(Position position) {
+        int pawns = pawnStructure(position.pieces(Pieces.WHITE, Pieces.PAWN), position.pieces(Pieces.BLACK, Pieces.PAWN));
+        int mg = midgame[ply] + (short) pawns;
+        int eg = endgame[ply] + ((pawns + 0x8000) >> 16);
+
+        int weight = Math.min(phase[ply], PieceSquareTables.MAX_PHASE);
+        int score = (mg * weight + eg * (PieceSquareTables.MAX_PHASE - weight)) / PieceSquareTables.MAX_PHASE;
+        return position.getSideToMove() == Pieces.WHITE ? score : -score;
+    }
+
+
+
+    private void add(int piece, int square) {
+        midgame[ply] += PieceSquareTables.midgame(piece, square);
+        endgame[ply] += PieceSquareTables.endgame(piece, square);
+        phase[ply] += PieceSquareTables.phase(piece);
+    }
+
+
+
+    private void remove(int piece, int square) {
+        midgame[ply] -= PieceSquareTables.midgame(piece, square);
+        endgame[ply] -= PieceSquareTables.endgame(piece, square);
+        phase[ply] -= PieceSquareTables.phase(piece);
+    }
+
+
+
+    /**
+     * White's pawn terms minus black's, packed as endgame * 65536 + midgame, looked up in the cache first.
+     * An empty entry holds no pawns and a score of 0, which is right for that placement.
+     */
+    private int pawnStructure(long whitePawns, long blackPawns) {
+        int index = (int) ((whitePawns * 0x9E3779B97F4A7C15L ^ blackPawns * 0xC2B2AE3D27D4EB4FL) >>> (64 - PAWN_CACHE_BITS));
+        if (pawnKeys[2 * index] == whitePawns && pawnKeys[2 * index + 1] == blackPawns) return pawnScores[index];
+
+        int score = pawnStructure(Pieces.WHITE, whitePawns, blackPawns) - pawnStructure(Pieces.BLACK, blackPawns, whitePawns);
+        pawnKeys[2 * index] = whitePawns;
+        pawnKeys[2 * index + 1] = blackPawns;
+        pawnScores[index] = score;
+        return score;
+    }
+
+
+
+    /**
+     * Doubled, isolated and passed pawn terms of one side, packed as endgame * 65536 + midgame
+     * so both phases come out of one pass.
+     */
+    private static int pawnStructure(int color, long pawns, long enemyPawns) {
+        int midgame = 0;
+        int endgame = 0;
+
+        for (int file = 0; file < 8; file++) {
+            int count = Long.bitCount(pawns & FILES[file]);
+            if (count == 0) continue;
+            if (count > 1) {
+                midgame += DOUBLED_MIDGAME * (count - 1);
+                endgame += DOUBLED_ENDGAME * (count - 1);
+            }
+            if ((pawns & ADJACENT_FILES[file]) == 0) {
+                midgame += ISOLATED_MIDGAME * count;
+                endgame += ISOLATED_ENDGAME * count;
+            }
+        }
+
+        for (long remaining = pawns; remaining != 0; remaining &= remaining - 1) {
+            int square = Long.numberOfTrailingZeros(remaining);
+            if ((PASSED_SPANS[color][square] & enemyPawns) == 0) {
+                int rank = color == Pieces.WHITE ? square >>> 3 : 7 - (square >>> 3);
+                midgame += PASSED_MIDGAME[rank];
+                endgame += PASSED_ENDGAME[rank];
+            }
+        }
+
+        return endgame * 65536 + midgame;
+    }
+}
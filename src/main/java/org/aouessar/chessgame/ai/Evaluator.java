@@ -0,0 +1,35 @@
+package org.aouessar.chessgame.ai;
+
+import org.aouessar.chessgame.core.Position;
+
+/**
+ * Static evaluation used by {@link Search}, in centipawns from the point of view of the side to move.
+ * Evaluators with their own incremental state are told about every move before it is made on the position;
+ * one instance serves a single search thread.
+ */
+@FunctionalInterface
+public interface Evaluator {
+
+    int evaluate(Position position);
+
+
+
+    /**
+     * Called once with the root position before a search starts.
+     */
+    default void reset(Position position) {
+    }
+
+
+
+    /**
+     * Called with the position before {@code move} is played on it.
+     */
+    default void makeMove(Position position, int move) {
+    }
+
+
+
+    default void unmakeMove() {
+    }
+}
@@ -0,0 +1,198 @@
+package org.aouessar.chessgame.ai;
+
+import org.aouessar.chessgame.core.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * In-process engine built on {@link Search}, no external binary needed.
+ * The skill level caps the number of nodes searched: every level doubles the budget and level 20 lifts the cap,
+ * so weak levels answer almost instantly.
+ * <p>
+ * With more than one thread the search runs Lazy SMP: helpers search the same position on their own copy,
+ * odd ones one ply deeper, and only share the transposition table. The main search decides when everyone stops,
+ * the answer comes from whichever search completed the deepest iteration.
+ */
+public class JavaEngine implements Engine {
+
+    public static final int MAX_SKILL = 20;
+
+    private static final long BASE_NODES = 1_000;
+
+    public static final int DEFAULT_HASH_MB = 64;
+
+    // Far above any core count, a container may still run more threads than it has cores
+    public static final int MAX_THREADS = 256;
+
+    // One evaluator per search thread
+    private final Supplier<Evaluator> evaluators;
+
+    private TranspositionTable table = new TranspositionTable(DEFAULT_HASH_MB);
+
+    // The main search first, then the helpers
+    private Search[] searches;
+
+    // Runs the helpers, null with a single thread
+    private ForkJoinPool helperPool;
+
+
+
+    public JavaEngine() {
+        this(Evaluation::new);
+    }
+
+
+
+    public JavaEngine(Supplier<Evaluator> evaluators) {
+        this.evaluators = evaluators;
+        createSearches(1);
+    }
+
+
+
+    @Override
+    public int getBestMove(Position position, int depth, int skillLevel) {
+        table.newSearch();
+        // The skill's budget is shared, more threads must not make a weak level stronger
+        long limit = nodeLimit(skillLevel);
+        long perSearch = limit == Long.MAX_VALUE ? limit : Math.max(1, limit / searches.length);
+        if (searches.length == 1) return searches[0].search(position, depth, perSearch);
+
+        List<ForkJoinTask<Integer>> helpers = new ArrayList<>(searches.length - 1);
+        for (int i = 1; i < searches.length; i++) {
+            Search helper = searches[i];
+            int extra = i % 2;
+            helpers.add(helperPool.submit(() -> helper.search(position, 1 + extra, depth + extra, perSearch)));
+        }
+
+        int bestMove = searches[0].search(position, depth, perSearch);
+        int bestDepth = searches[0].getCompletedDepth();
+
+        for (int i = 1; i < searches.length; i++) {
+            int move = await(searches[i], helpers.get(i - 1));
+            if (searches[i].getCompletedDepth() > bestDepth) {
+                bestMove = move;
+                bestDepth = searches[i].getCompletedDepth();
+            }
+        }
+        return bestMove;
+    }
+
+
+
+    /**
+     * Stops a helper and waits for its move. The stop is repeated since a helper that had not started yet
+     * clears the flag when it does.
+     */
+    private static int await(Search helper, ForkJoinTask<Integer> task) {
+        while (true) {
+            helper.stop();
+            try {
+                return task.get(1, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Still running, stop it again
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return task.join();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Helper search failed", e.getCause());
+            }
+        }
+    }
+
+
+
+    @Override
+    public void setHashSize(int megabytes) {
+        if (megabytes == table.getMegabytes()) return;
+        int previous = table.getMegabytes();
+        int threads = searches.length;
+
+        // Let go of the old table first, both would otherwise have to fit in direct memory at once
+        table = null;
+        searches = null;
+        try {
+            table = new TranspositionTable(megabytes);
+        } catch (IllegalStateException e) {
+            table = new TranspositionTable(previous);
+            throw e;
+        } finally {
+            createSearches(threads);
+        }
+    }
+
+
+
+    @Override
+    public void setThreads(int threads) {
+        if (threads < 1 || threads > MAX_THREADS) throw new IllegalArgumentException("Search threads out of range[1," + MAX_THREADS + "]: " + threads);
+        if (threads != searches.length) createSearches(threads);
+    }
+
+
+
+    @Override
+    public int getMaxThreads() {
+        return MAX_THREADS;
+    }
+
+
+
+    private void createSearches(int threads) {
+        int helpers = helperPool == null ? 0 : helperPool.getParallelism();
+        if (helpers != threads - 1) {
+            if (helperPool != null) helperPool.shutdown();
+            helperPool = threads > 1 ? new ForkJoinPool(threads - 1) : null;
+        }
+        searches = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new Search(table, evaluators.get());
+        }
+    }
+
+
+
+    public static long nodeLimit(int skillLevel) {
+        if (skillLevel >= MAX_SKILL) return Long.MAX_VALUE;
+        return BASE_NODES << Math.max(0, skillLevel);
+    }
+
+
+
+    /**
+     * @return the main search, the one driving the node limit and depth
+     */
+    public Search getSearch() {
+        return searches[0];
+    }
+
+
+
+    /**
+     * @return the nodes visited by every thread during the last search
+     */
+    public long getNodes() {
+        long nodes = 0;
+        for (Search search : searches) {
+            nodes += search.getNodes();
+        }
+        return nodes;
+    }
+
+
+
+    @Override
+    public void close() {
+        for (Search search : searches) {
+            search.stop();
+        }
+        if (helperPool != null) helperPool.shutdown();
+    }
+}
@@ -0,0 +1,330 @@
+package org.aouessar.chessgame.ai;
+
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Perft;
+import org.aouessar.chessgame.core.Position;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Proves or refutes a forced mate within a number of moves with depth-first proof-number search (df-pn).
+ * <p>
+ * Each node carries a proof and a disproof number, the minimum count of leaves still to be solved to prove
+ * or disprove it, and the search always descends into the most promising child until a threshold is exceeded.
+ * Only the numbers are kept, in a fixed size table keyed by position and remaining plies, so memory stays bounded
+ * and the work goes to forcing lines instead of the full width an alpha-beta search would spend.
+ * <p>
+ * Values are stored in negamax form for the side to move: phi is its proof number and delta its disproof number,
+ * so phi = 0 means the side to move wins and delta = 0 means it loses. Draws count as wins for the defender.
+ * <p>
+ * A repetition or a fifty-move draw only happens because of the path that led to it, so a value reached through
+ * one holds for that path alone. Such values are never stored, otherwise the same position reached another way would read a draw
+ * that is not there and a mate could be missed.
+ */
+public class MateSolver {
+
+    public static final int MAX_MOVES = 32;
+
+    private static final int INFINITY = 1 << 30;
+
+    private static final long MISS = -1L;
+
+    // Lost and won for the side to move, as packed phi and delta
+    private static final long LOST = pack(INFINITY, 0);
+
+    private static final long WON = pack(0, INFINITY);
+
+    public enum Status {
+        MATE, NO_MATE, UNKNOWN
+    }
+
+    /**
+     * @param moves length of the shortest mate in moves of the attacker, 0 unless {@code status} is MATE
+     * @param line the forced line, the defender playing its longest resistance
+     */
+    public record Result(Status status, int moves, List<Integer> line, long nodes, long nanos) {
+
+        @Override
+        public String toString() {
+            String head = switch (status) {
+                case MATE -> "Mate in " + moves + ": " + line.stream().map(Move::toUci).collect(Collectors.joining(" "));
+                case NO_MATE -> "No forced mate";
+                case UNKNOWN -> "Unknown, node limit reached";
+            };
+            return head + " | " + Perft.report(nodes, nanos);
+        }
+    }
+
+    private final long[] keys;
+
+    private final long[] values;
+
+    private final int mask;
+
+    private final MoveList[] moves = new MoveList[2 * MAX_MOVES + 1];
+
+    private final int[][] phis = new int[2 * MAX_MOVES + 1][MoveList.CAPACITY];
+
+    private final int[][] deltas = new int[2 * MAX_MOVES + 1][MoveList.CAPACITY];
+
+    // Children whose value depends on a repetition or the fifty-move rule along the current path
+    private final boolean[][] cycles = new boolean[2 * MAX_MOVES + 1][MoveList.CAPACITY];
+
+    // Whether the value last returned by mid or terminal depends on the path
+    private boolean cycle;
+
+    private Position position;
+
+    private int attacker;
+
+    private long nodes;
+
+    private long nodeLimit;
+
+    private boolean aborted;
+
+
+
+    public MateSolver(int hashMegabytes) {
+        int size = Integer.highestOneBit((int) Math.min(1 << 26, (long) hashMegabytes * 1024 * 1024 / 16));
+        this.keys = new long[size];
+        this.values = new long[size];
+        this.mask = size - 1;
+        for (int ply = 0; ply < moves.length; ply++) {
+            moves[ply] = new MoveList();
+        }
+    }
+
+
+
+    /**
+     * Looks for a mate by the side to move in 1, 2, ... up to {@code maxMoves} moves, so the first one found
+     * is the shortest.
+     */
+    public Result solve(Position root, int maxMoves, long nodeLimit) {
+        if (maxMoves < 1 || maxMoves > MAX_MOVES) {
+            throw new IllegalArgumentException("Mate length must be between 1 and " + MAX_MOVES + ": " + maxMoves);
+        }
+
+        this.position = root.copy();
+        this.attacker = position.getSideToMove();
+        this.nodes = 0;
+        this.nodeLimit = nodeLimit;
+        this.aborted = false;
+        long start = System.nanoTime();
+
+        for (int length = 1; length <= maxMoves; length++) {
+            long result = mid(0, 2 * length - 1, INFINITY, INFINITY);
+            if (aborted) return new Result(Status.UNKNOWN, 0, List.of(), nodes, System.nanoTime() - start);
+            if (phi(result) == 0) {
+                this.nodeLimit = Long.MAX_VALUE;
+                return new Result(Status.MATE, length, line(2 * length - 1), nodes, System.nanoTime() - start);
+            }
+        }
+        return new Result(Status.NO_MATE, 0, List.of(), nodes, System.nanoTime() - start);
+    }
+
+
+
+    public void clearHash() {
+        Arrays.fill(keys, 0L);
+    }
+
+
+
+    /**
+     * Solves the node until its phi reaches {@code thPhi} or its delta reaches {@code thDelta}.
+     * @param remaining plies the attacker still has to deliver mate
+     */
+    private long mid(int ply, int remaining, int thPhi, int thDelta) {
+        cycle = false;
+        long leaf = terminal(ply, remaining);
+        if (leaf != MISS) return leaf;
+
+        long key = key(remaining);
+        MoveList list = moves[ply];
+        int[] phi = phis[ply];
+        int[] delta = deltas[ply];
+        boolean[] cycled = cycles[ply];
+
+        for (int i = 0; i < list.size(); i++) {
+            position.makeMove(list.get(i));
+            cycle = false;
+            long child = lookup(key(remaining - 1));
+            if (child == MISS) child = terminal(ply + 1, remaining - 1);
+            // Unknown children start with the mobility of their side to move as disproof number
+            if (child == MISS) child = pack(1, moves[ply + 1].size());
+            position.unmakeMove();
+
+            phi[i] = phi(child);
+            delta[i] = delta(child);
+            cycled[i] = cycle;
+        }
+
+        while (true) {
+            int best = 0;
+            int minDelta = INFINITY;
+            int secondDelta = INFINITY;
+            long sumPhi = 0;
+            for (int i = 0; i < list.size(); i++) {
+                if (delta[i] < minDelta) {
+                    secondDelta = minDelta;
+                    minDelta = delta[i];
+                    best = i;
+                } else if (delta[i] < secondDelta) {
+                    secondDelta = delta[i];
+                }
+                sumPhi += phi[i];
+            }
+            int nodePhi = minDelta;
+            int nodeDelta = (int) Math.min(INFINITY, sumPhi);
+
+            if (nodePhi >= thPhi || nodeDelta >= thDelta || aborted) {
+                cycle = false;
+                for (int i = 0; i < list.size(); i++) {
+                    cycle |= cycled[i];
+                }
+                if (!cycle) store(key, pack(nodePhi, nodeDelta));
+                return pack(nodePhi, nodeDelta);
+            }
+
+            int childThPhi = (int) Math.min(INFINITY, (long) thDelta - nodeDelta + phi[best]);
+            int childThDelta = (int) Math.min(thPhi, (long) secondDelta + 1);
+
+            position.makeMove(list.get(best));
+            long child = mid(ply + 1, remaining - 1, childThPhi, childThDelta);
+            position.unmakeMove();
+
+            phi[best] = phi(child);
+            delta[best] = delta(child);
+            cycled[best] = cycle;
+        }
+    }
+
+
+
+    /**
+     * Generates the moves of the node into its ply's list.
+     * @return the value of a solved node, {@link #MISS} if it has to be searched
+     */
+    private long terminal(int ply, int remaining) {
+        if (++nodes >= nodeLimit) aborted = true;
+
+        boolean attacking = position.getSideToMove() == attacker;
+        long defended = attacking ? LOST : WON;
+        if (ply > 0 && (position.isRepetition(2) || position.isFiftyMoveDraw())) {
+            cycle = true;
+            return defended;
+        }
+        if (ply > 0 && position.hasInsufficientMaterial()) return defended;
+
+        MoveList list = moves[ply];
+        MoveGenerator.generateLegalMoves(position, list);
+        if (list.isEmpty()) {
+            // Stalemate, or the attacker getting mated, does not count
+            return !attacking && position.isInCheck(position.getSideToMove()) ? LOST : defended;
+        }
+        return remaining == 0 ? defended : MISS;
+    }
+
+
+
+    /**
+     * Walks the proven tree from the root: the attacker picks a move that still mates in time, the defender
+     * the move that delays mate the longest. Entries lost to table collisions are solved again on the way.
+     */
+    private List<Integer> line(int remaining) {
+        List<Integer> line = new ArrayList<>();
+        while (remaining > 0) {
+            int ply = line.size();
+            MoveList list = new MoveList();
+            MoveGenerator.generateLegalMoves(position, list);
+
+            int chosen = Move.NONE;
+            int next = remaining - 1;
+            if (position.getSideToMove() == attacker) {
+                // A move the table already proves first, solving moves one by one is the fallback
+                for (int i = 0; i < list.size() && chosen == Move.NONE; i++) {
+                    position.makeMove(list.get(i));
+                    long child = lookup(key(remaining - 1));
+                    if (child != MISS && delta(child) == 0) chosen = list.get(i);
+                    position.unmakeMove();
+                }
+                for (int i = 0; i < list.size() && chosen == Move.NONE; i++) {
+                    position.makeMove(list.get(i));
+                    if (delta(mid(ply + 1, remaining - 1, INFINITY, INFINITY)) == 0) chosen = list.get(i);
+                    position.unmakeMove();
+                }
+            } else {
+                int longest = -1;
+                for (int i = 0; i < list.size(); i++) {
+                    position.makeMove(list.get(i));
+                    // Only a defence outlasting the best one so far needs its exact length
+                    int length = Math.max(1, longest);
+                    while (length < remaining - 1 && phi(mid(ply + 1, length, INFINITY, INFINITY)) != 0) {
+                        length += 2;
+                    }
+                    position.unmakeMove();
+                    if (length > longest) {
+                        longest = length;
+                        chosen = list.get(i);
+                    }
+                }
+                next = longest;
+            }
+
+            if (chosen == Move.NONE) break;
+            position.makeMove(chosen);
+            line.add(chosen);
+            remaining = next;
+        }
+        for (int i = 0; i < line.size(); i++) {
+            position.unmakeMove();
+        }
+        return line;
+    }
+
+
+
+    private long key(int remaining) {
+        return position.getKey() ^ (remaining * 0x9E3779B97F4A7C15L);
+    }
+
+
+
+    private long lookup(long key) {
+        int index = (int) key & mask;
+        return keys[index] == key ? values[index] : MISS;
+    }
+
+
+
+    private void store(long key, long value) {
+        int index = (int) key & mask;
+        keys[index] = key;
+        values[index] = value;
+    }
+
+
+
+    private static long pack(int phi, int delta) {
+        return (long) phi << 32 | delta;
+    }
+
+
+
+    private static int phi(long value) {
+        return (int) (value >>> 32);
+    }
+
+
+
+    private static int delta(long value) {
+        return (int) value;
+    }
+}
@@ -0,0 +1,367 @@
+package org.aouessar.chessgame.ai;
+
+import lombok.Getter;
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
+
+import java.util.Arrays;
+
+/**
+ * Iterative deepening principal variation search with a quiescence search at the leaves.
+ * Results are kept in a {@link TranspositionTable} that may be shared with other searches.
+ * Moves are tried best first: the previous iteration's best move at the root or the table's move elsewhere,
+ * then captures by MVV-LVA, then the killer moves of the ply and finally quiet moves by history score.
+ * One instance searches on one thread, all buffers are allocated once and reused between searches.
+ */
+public class Search {
+
+    public static final int MAX_PLY = 128;
+
+    public static final int INFINITY = 32001;
+
+    public static final int MATE = 32000;
+
+    // Any score above this is a mate found within the search horizon
+    public static final int MATE_BOUND = MATE - MAX_PLY;
+
+    private static final int CAPTURE_BONUS = 1_000_000;
+
+    private static final int PROMOTION_BONUS = 900_000;
+
+    private static final int KILLER_BONUS = 800_000;
+
+    private static final int HISTORY_LIMIT = 500_000;
+
+    private final MoveList[] moves = new MoveList[MAX_PLY + 1];
+
+    private final int[][] scores = new int[MAX_PLY + 1][MoveList.CAPACITY];
+
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+
+    // Cutoffs caused by each quiet move, by piece and destination
+    private final int[][] history = new int[12][64];
+
+    private final TranspositionTable table;
+
+    private final Evaluator evaluator;
+
+    private Position position;
+
+    private long nodeLimit;
+
+    private volatile boolean stopped;
+
+    private int rootMove;
+
+    @Getter
+    private long nodes;
+
+    @Getter
+    private int score;
+
+    @Getter
+    private int completedDepth;
+
+
+
+    public Search(TranspositionTable table) {
+        this(table, new Evaluation());
+    }
+
+
+
+    public Search(TranspositionTable table, Evaluator evaluator) {
+        this.table = table;
+        this.evaluator = evaluator;
+        for (int ply = 0; ply <= MAX_PLY; ply++) {
+            moves[ply] = new MoveList();
+        }
+    }
+
+
+
+    /**
+     * Searches a copy of {@code root} one depth after another until {@code maxDepth} or the node limit is reached.
+     * @return the best move of the deepest completed iteration, {@link Move#NONE} if the side to move has none
+     */
+    public int search(Position root, int maxDepth, long nodeLimit) {
+        return search(root, 1, maxDepth, nodeLimit);
+    }
+
+
+
+    /**
+     * Same as {@link #search(Position, int, long)} with the first iteration at {@code startDepth},
+     * used by helper threads to spread over different depths.
+     */
+    public int search(Position root, int startDepth, int maxDepth, long nodeLimit) {
+        this.position = root.copy();
+        evaluator.reset(position);
+        this.nodeLimit = nodeLimit;
+        this.stopped = false;
+        this.nodes = 0;
+        this.completedDepth = 0;
+        this.score = 0;
+        for (int[] killer : killers) {
+            killer[0] = Move.NONE;
+            killer[1] = Move.NONE;
+        }
+        for (int[] row : history) {
+            Arrays.fill(row, 0);
+        }
+
+        MoveGenerator.generateLegalMoves(position, moves[0]);
+        if (moves[0].isEmpty()) return Move.NONE;
+        int bestMove = moves[0].get(0);
+
+        for (int depth = startDepth; depth <= Math.min(maxDepth, MAX_PLY - 1); depth++) {
+            rootMove = bestMove;
+            int value = search(depth, 0, -INFINITY, INFINITY);
+
+            // An interrupted iteration is incomplete, the previous one is kept unless there is none
+            if (stopped && completedDepth > 0) break;
+
+            bestMove = rootMove;
+            if (stopped) break;
+            score = value;
+            completedDepth = depth;
+
+            // No need to look deeper once a forced mate is found
+            if (Math.abs(value) >= MATE_BOUND) break;
+        }
+
+        return bestMove;
+    }
+
+
+
+    /**
+     * Asks a running search to return as soon as possible, safe to call from another thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+
+
+    private int search(int depth, int ply, int alpha, int beta) {
+        int us = position.getSideToMove();
+        boolean inCheck = position.isInCheck(us);
+
+        if (ply > 0) {
+            if (position.isRepetition(2) || position.isFiftyMoveDraw() || position.hasInsufficientMaterial()) return 0;
+            if (ply >= MAX_PLY) return evaluator.evaluate(position);
+        }
+
+        // Never stop in check, a check evasion is too forcing to leave to the quiescence search
+        if (inCheck) depth++;
+        if (depth <= 0) return quiesce(ply, alpha, beta);
+
+        if (++nodes >= nodeLimit) stopped = true;
+
+        long key = position.getKey();
+        long entry = table.probe(key);
+        if (ply > 0 && entry != TranspositionTable.MISS && TranspositionTable.depth(entry) >= depth) {
+            int stored = TranspositionTable.score(entry, ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || bound == TranspositionTable.LOWER && stored >= beta
+                    || bound == TranspositionTable.UPPER && stored <= alpha) {
+                return stored;
+            }
+        }
+
+        MoveList list = moves[ply];
+        MoveGenerator.generateLegalMoves(position, list);
+        if (list.isEmpty()) return inCheck ? -MATE + ply : 0;
+
+        scoreMoves(list, ply, ply == 0 ? rootMove : TranspositionTable.move(entry));
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < list.size(); i++) {
+            int move = pickNext(list, ply, i);
+            boolean quiet = isQuiet(move);
+
+            makeMove(move);
+            int value;
+            if (i == 0) {
+                value = -search(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                // Later moves are expected to fail low, prove it with a null window first
+                value = -search(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (value > alpha && value < beta) {
+                    value = -search(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            unmakeMove();
+
+            if (stopped) return 0;
+
+            if (value > best) {
+                best = value;
+                if (ply == 0) rootMove = move;
+                if (value > alpha) {
+                    alpha = value;
+                    bestMove = move;
+                    if (value >= beta) {
+                        if (quiet) rememberCutoff(move, ply, depth);
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, best, depth, bound, ply);
+
+        return best;
+    }
+
+
+
+    /**
+     * Only captures and promotions are searched past the horizon, the side to move can always stand pat
+     * unless it is in check.
+     */
+    private int quiesce(int ply, int alpha, int beta) {
+        if (++nodes >= nodeLimit) stopped = true;
+        if (ply >= MAX_PLY) return evaluator.evaluate(position);
+
+        int us = position.getSideToMove();
+        boolean inCheck = position.isInCheck(us);
+
+        int best = -INFINITY;
+        if (!inCheck) {
+            best = evaluator.evaluate(position);
+            if (best >= beta) return best;
+            if (best > alpha) alpha = best;
+        }
+
+        MoveList list = moves[ply];
+        MoveGenerator.generateLegalMoves(position, list);
+        if (list.isEmpty()) return inCheck ? -MATE + ply : best;
+
+        if (!inCheck) {
+            // Keep the forcing moves only
+            int kept = 0;
+            for (int i = 0; i < list.size(); i++) {
+                if (!isQuiet(list.get(i))) list.set(kept++, list.get(i));
+            }
+            list.truncate(kept);
+        }
+
+        scoreMoves(list, ply, Move.NONE);
+
+        for (int i = 0; i < list.size(); i++) {
+            int move = pickNext(list, ply, i);
+
+            makeMove(move);
+            int value = -quiesce(ply + 1, -beta, -alpha);
+            unmakeMove();
+
+            if (stopped) return 0;
+
+            if (value > best) {
+                best = value;
+                if (value > alpha) {
+                    alpha = value;
+                    if (value >= beta) break;
+                }
+            }
+        }
+
+        return best;
+    }
+
+
+
+    private void makeMove(int move) {
+        evaluator.makeMove(position, move);
+        position.makeMove(move);
+    }
+
+
+
+    private void unmakeMove() {
+        position.unmakeMove();
+        evaluator.unmakeMove();
+    }
+
+
+
+    private boolean isQuiet(int move) {
+        return position.pieceAt(Move.to(move)) == Pieces.NONE && !Move.isEnPassant(move) && !Move.isPromotion(move);
+    }
+
+
+
+    private void scoreMoves(MoveList list, int ply, int firstMove) {
+        int[] moveScores = scores[ply];
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            int piece = position.pieceAt(Move.from(move));
+            int victim = Move.isEnPassant(move) ? Pieces.PAWN : position.pieceAt(Move.to(move));
+
+            if (move == firstMove) {
+                moveScores[i] = Integer.MAX_VALUE;
+            } else if (victim != Pieces.NONE) {
+                // Most valuable victim first, least valuable attacker to break ties
+                moveScores[i] = CAPTURE_BONUS + Evaluation.PIECE_VALUES[Pieces.type(victim)] * 8 - Pieces.type(piece);
+            } else if (Move.isPromotion(move)) {
+                moveScores[i] = PROMOTION_BONUS + Move.promotion(move);
+            } else if (move == killers[ply][0] || move == killers[ply][1]) {
+                moveScores[i] = KILLER_BONUS + (move == killers[ply][0] ? 1 : 0);
+            } else {
+                moveScores[i] = history[piece][Move.to(move)];
+            }
+        }
+    }
+
+
+
+    /**
+     * Selection sort step: swaps the best remaining move into slot {@code index}, cheap since cutoffs
+     * usually happen within the first few moves.
+     */
+    private int pickNext(MoveList list, int ply, int index) {
+        int[] moveScores = scores[ply];
+        int best = index;
+        for (int i = index + 1; i < list.size(); i++) {
+            if (moveScores[i] > moveScores[best]) best = i;
+        }
+
+        int move = list.get(best);
+        list.set(best, list.get(index));
+        list.set(index, move);
+        int moveScore = moveScores[best];
+        moveScores[best] = moveScores[index];
+        moveScores[index] = moveScore;
+        return move;
+    }
+
+
+
+    private void rememberCutoff(int move, int ply, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+
+        int[] cutoffs = history[position.pieceAt(Move.from(move))];
+        cutoffs[Move.to(move)] += depth * depth;
+        if (cutoffs[Move.to(move)] > HISTORY_LIMIT) {
+            // Age every entry so old cutoffs fade instead of saturating
+            for (int[] row : history) {
+                for (int to = 0; to < 64; to++) {
+                    row[to] /= 2;
+                }
+            }
+        }
+    }
+}
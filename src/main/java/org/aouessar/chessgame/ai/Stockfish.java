@@ -1,14 +1,23 @@
 package org.aouessar.chessgame.ai;
 
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Position;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 
-public class Stockfish {
+public class Stockfish implements Engine {
+    // Range of Stockfish's "Threads" option
+    public static final int MAX_THREADS = 1024;
+
     private Process engineProcess;
     private BufferedReader processReader;
     private OutputStreamWriter processWriter;
+    private final MoveList legalMoves = new MoveList();
 
     public Stockfish(String pathToEngine) {
         try {
@@ -63,24 +72,59 @@ public class Stockfish {
         }
     }
 
-    public String getBestMove(String fen, int depth, int skillLevel) {
+    /**
+     * @return the engine's best move in the given position, or {@link Move#NONE} if it gave none
+     */
+    @Override
+    public int getBestMove(Position position, int depth, int skillLevel) {
         // Set the position and calculate the best move
-        sendCommand("position fen " + fen);
+        sendCommand("position fen " + position.toFen());
         sendCommand("go depth " + depth);
         sendCommand("setoption name Skill Level value " + skillLevel);
-        String response = getResponse();
+        return parseBestMove(getResponse(), position, legalMoves);
+    }
 
-        // Extract the best move from the response
+    /**
+     * Extracts the "bestmove" of an engine response and matches it against the legal moves to get its flags.
+     * @param legalMoves reusable buffer, filled with the legal moves of the position
+     */
+    public static int parseBestMove(String response, Position position, MoveList legalMoves) {
         if (response != null) {
             for (String line : response.split("\n")) {
                 if (line.startsWith("bestmove")) {
-                    return line.split(" ")[1]; // The best move is the second word
+                    // The best move is the second word
+                    MoveGenerator.generateLegalMoves(position, legalMoves);
+                    return Move.fromUci(line.split(" ")[1], legalMoves);
                 }
             }
         }
-        return null;
+        return Move.NONE;
+    }
+
+    @Override
+    public void setHashSize(int megabytes) {
+        sendCommand("setoption name Hash value " + megabytes);
+    }
+
+    @Override
+    public void setThreads(int threads) {
+        if (threads < 1 || threads > MAX_THREADS) throw new IllegalArgumentException("Stockfish threads out of range[1," + MAX_THREADS + "]: " + threads);
+        sendCommand("setoption name Threads value " + threads);
+    }
+
+    @Override
+    public int getMaxThreads() {
+        return MAX_THREADS;
+    }
+
+    /**
+     * @return true if the engine process was started and is still alive
+     */
+    public boolean isReady() {
+        return engineProcess != null && engineProcess.isAlive();
     }
 
+    @Override
     public void close() {
         try {
             sendCommand("quit");
@@ -0,0 +1,176 @@
+package org.aouessar.chessgame.ai;
+
+import org.aouessar.chessgame.core.Move;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Search results by Zobrist key, kept in direct buffers outside the Java heap so a table of several
+ * gigabytes costs the garbage collector nothing. Direct memory has its own limit, the heap size by default.
+ * <p>
+ * An entry is 16 bytes: the key XORed with the data, then the data. Threads read and write entries without
+ * locking; an entry torn by two concurrent writes no longer XORs back to its key and simply reads as a miss.
+ * <p>
+ * Data layout: move in bits 0-15, score in bits 16-31, depth in bits 32-39, bound in bits 40-41
+ * and the search generation in bits 42-49.
+ */
+public class TranspositionTable {
+
+    public static final int UPPER = 1;
+
+    public static final int LOWER = 2;
+
+    public static final int EXACT = 3;
+
+    // Probe result when the key is not in the table
+    public static final long MISS = 0L;
+
+    private static final int ENTRY_BYTES = 16;
+
+    // 2^26 entries make a 1 GB buffer, larger tables are split over several buffers
+    private static final int CHUNK_SHIFT = 26;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer[] chunks;
+
+    private final long mask;
+
+    private final int megabytes;
+
+    private int generation;
+
+
+
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) throw new IllegalArgumentException("Hash size must be at least 1 MB: " + megabytes);
+
+        long size = Long.highestOneBit((long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int chunkEntries = (int) Math.min(size, 1L << CHUNK_SHIFT);
+        this.chunks = new ByteBuffer[(int) (size / chunkEntries)];
+        try {
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = ByteBuffer.allocateDirect(chunkEntries * ENTRY_BYTES).order(ByteOrder.nativeOrder());
+            }
+        } catch (OutOfMemoryError e) {
+            // Direct memory is capped at the heap size unless -XX:MaxDirectMemorySize says otherwise
+            throw new IllegalStateException("Cannot reserve " + megabytes + " MB of direct memory for the hash, "
+                    + "start the JVM with a larger -XX:MaxDirectMemorySize", e);
+        }
+        this.mask = size - 1;
+        this.megabytes = megabytes;
+    }
+
+
+
+    /**
+     * @return the packed data stored for {@code key}, or {@link #MISS}
+     */
+    public long probe(long key) {
+        long index = key & mask;
+        ByteBuffer chunk = chunks[(int) (index >>> CHUNK_SHIFT)];
+        int offset = offset(index);
+
+        long check = (long) LONGS.getOpaque(chunk, offset);
+        long data = (long) LONGS.getOpaque(chunk, offset + 8);
+        return (check ^ data) == key ? data : MISS;
+    }
+
+
+
+    /**
+     * Stores a result unless the slot holds a deeper search of another position from the current generation.
+     * @param ply distance from the root, mate scores are stored relative to the position itself
+     */
+    public void store(long key, int move, int score, int depth, int bound, int ply) {
+        long index = key & mask;
+        ByteBuffer chunk = chunks[(int) (index >>> CHUNK_SHIFT)];
+        int offset = offset(index);
+
+        long oldCheck = (long) LONGS.getOpaque(chunk, offset);
+        long oldData = (long) LONGS.getOpaque(chunk, offset + 8);
+        boolean sameKey = (oldCheck ^ oldData) == key;
+        if (!sameKey && oldData != MISS && generation(oldData) == generation && depth(oldData) > depth) return;
+
+        // Keep the known best move when this search failed low and found none
+        if (move == Move.NONE && sameKey) move = move(oldData);
+
+        if (score >= Search.MATE_BOUND) score += ply;
+        else if (score <= -Search.MATE_BOUND) score -= ply;
+
+        long data = (move & 0xFFFFL)
+                | (score & 0xFFFFL) << 16
+                | (long) Math.min(depth, 0xFF) << 32
+                | (long) bound << 40
+                | (long) generation << 42;
+        LONGS.setOpaque(chunk, offset, key ^ data);
+        LONGS.setOpaque(chunk, offset + 8, data);
+    }
+
+
+
+    /**
+     * Ages the current entries so the next search may overwrite them regardless of depth.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+
+
+    public void clear() {
+        for (ByteBuffer chunk : chunks) {
+            for (int offset = 0; offset < chunk.capacity(); offset += 8) {
+                chunk.putLong(offset, 0L);
+            }
+        }
+    }
+
+
+
+    public int getMegabytes() {
+        return megabytes;
+    }
+
+
+
+    private static int offset(long index) {
+        return (int) (index & ((1L << CHUNK_SHIFT) - 1)) * ENTRY_BYTES;
+    }
+
+
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+
+
+    public static int score(long data, int ply) {
+        int score = (short) (data >>> 16);
+        if (score >= Search.MATE_BOUND) return score - ply;
+        if (score <= -Search.MATE_BOUND) return score + ply;
+        return score;
+    }
+
+
+
+    public static int depth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+
+
+    public static int bound(long data) {
+        return (int) (data >>> 40) & 0x3;
+    }
+
+
+
+    private static int generation(long data) {
+        return (int) (data >>> 42) & 0xFF;
+    }
+}
@@ -0,0 +1,58 @@
+package org.aouessar.chessgame.ai.nnue;
+
+/**
+ * The arithmetic of the network, with a plain Java version and a SIMD one on the incubating Vector API.
+ * The SIMD version needs the JVM started with {@code --add-modules jdk.incubator.vector}.
+ */
+public interface Kernels {
+
+    /**
+     * Adds {@code accumulator.length} weights starting at {@code offset} to the accumulator.
+     */
+    void add(short[] accumulator, short[] weights, int offset);
+
+
+
+    void subtract(short[] accumulator, short[] weights, int offset);
+
+
+
+    /**
+     * @return the dot product of both clipped accumulators with the output weights, the side to move first
+     */
+    int output(short[] us, short[] them, short[] weights);
+
+
+
+    String name();
+
+
+
+    static Kernels scalar() {
+        return new ScalarKernels();
+    }
+
+
+
+    /**
+     * @param bits vector width, 64 to 512
+     */
+    static Kernels vector(int bits) {
+        return new VectorKernels(bits);
+    }
+
+
+
+    static boolean isVectorAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+
+
+    /**
+     * @return SIMD kernels at the CPU's preferred width if the Vector API is available, the scalar ones otherwise
+     */
+    static Kernels best() {
+        return isVectorAvailable() ? VectorKernels.preferred() : scalar();
+    }
+}
@@ -0,0 +1,147 @@
+package org.aouessar.chessgame.ai.nnue;
+
+import org.aouessar.chessgame.core.Pieces;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * Quantized weights of a 768 -> N x 2 -> 1 perspective network.
+ * <p>
+ * Each side has its own accumulator of N values: the feature bias plus one weight column per piece on the board,
+ * a feature being the piece's color relative to that side, its type and its square (mirrored for black).
+ * The output layer reads both accumulators through a clipped ReLU, the side to move first.
+ * <p>
+ * File layout, little endian: the magic {@code "NNUE"}, the hidden size N as an int, then 768 * N feature weights,
+ * N feature biases and 2 * N output weights as shorts, and finally the output bias as an int.
+ * Feature weights are scaled by {@link #QA}, output weights by {@link #QB}.
+ */
+public final class Network {
+
+    public static final int FEATURES = 768;
+
+    // Quantization of the accumulator, it is clipped to [0, QA]
+    public static final int QA = 255;
+
+    public static final int QB = 64;
+
+    // Centipawns per unit of network output
+    public static final int SCALE = 400;
+
+    private static final int MAGIC = 0x45554E4E;
+
+    private final int hiddenSize;
+
+    // Row per feature, hiddenSize values each
+    private final short[] featureWeights;
+
+    private final short[] featureBiases;
+
+    // Side to move's half first, then the other side's
+    private final short[] outputWeights;
+
+    private final int outputBias;
+
+
+
+    private Network(int hiddenSize, short[] featureWeights, short[] featureBiases, short[] outputWeights, int outputBias) {
+        this.hiddenSize = hiddenSize;
+        this.featureWeights = featureWeights;
+        this.featureBiases = featureBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+
+
+    public static Network load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) throw new IOException("Not a network file: " + file);
+
+            int hiddenSize = buffer.getInt();
+            long expected = 8L + 2L * (FEATURES * (long) hiddenSize + 3L * hiddenSize) + 4;
+            if (hiddenSize <= 0 || buffer.capacity() != expected) {
+                throw new IOException("Corrupt network file " + file + ": " + buffer.capacity() + " bytes for " + hiddenSize + " hidden neurons");
+            }
+
+            short[] featureWeights = new short[FEATURES * hiddenSize];
+            short[] featureBiases = new short[hiddenSize];
+            short[] outputWeights = new short[2 * hiddenSize];
+            buffer.asShortBuffer().get(featureWeights).get(featureBiases).get(outputWeights);
+            buffer.position(buffer.position() + 2 * (featureWeights.length + featureBiases.length + outputWeights.length));
+            return new Network(hiddenSize, featureWeights, featureBiases, outputWeights, buffer.getInt());
+        }
+    }
+
+
+
+    /**
+     * A network of small random weights, it plays nonsense but evaluates exactly as fast as a trained one.
+     */
+    public static Network random(int hiddenSize, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        short[] featureWeights = new short[FEATURES * hiddenSize];
+        for (int i = 0; i < featureWeights.length; i++) {
+            featureWeights[i] = (short) random.nextInt(-32, 33);
+        }
+        short[] featureBiases = new short[hiddenSize];
+        for (int i = 0; i < hiddenSize; i++) {
+            featureBiases[i] = (short) random.nextInt(0, 64);
+        }
+        short[] outputWeights = new short[2 * hiddenSize];
+        for (int i = 0; i < outputWeights.length; i++) {
+            outputWeights[i] = (short) random.nextInt(-64, 65);
+        }
+        return new Network(hiddenSize, featureWeights, featureBiases, outputWeights, 0);
+    }
+
+
+
+    /**
+     * @return the row of {@code piece} on {@code square} seen from {@code perspective}, an offset in the feature weights
+     */
+    public int feature(int perspective, int piece, int square) {
+        int color = Pieces.color(piece) ^ perspective;
+        int relativeSquare = perspective == Pieces.WHITE ? square : square ^ 56;
+        return ((color * 6 + Pieces.type(piece)) * 64 + relativeSquare) * hiddenSize;
+    }
+
+
+
+    /**
+     * @param sum output layer dot product of both accumulators
+     */
+    public int centipawns(int sum) {
+        return (int) ((sum + (long) outputBias) * SCALE / (QA * QB));
+    }
+
+
+
+    public int getHiddenSize() {
+        return hiddenSize;
+    }
+
+
+
+    short[] featureWeights() {
+        return featureWeights;
+    }
+
+
+
+    short[] featureBiases() {
+        return featureBiases;
+    }
+
+
+
+    short[] outputWeights() {
+        return outputWeights;
+    }
+}
@@ -0,0 +1,118 @@
+package org.aouessar.chessgame.ai.nnue;
+
+import org.aouessar.chessgame.ai.Evaluator;
+import org.aouessar.chessgame.ai.Search;
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
+
+/**
+ * Evaluates with a {@link Network}. Both accumulators are built once at the root, then every move copies them
+ * one ply up and only adds and subtracts the columns of the pieces it moved, so a leaf costs the output layer alone.
+ */
+public class NnueEvaluator implements Evaluator {
+
+    private final Network network;
+
+    private final Kernels kernels;
+
+    // By ply, then perspective
+    private final short[][][] accumulators;
+
+    private int ply;
+
+
+
+    public NnueEvaluator(Network network) {
+        this(network, Kernels.best());
+    }
+
+
+
+    public NnueEvaluator(Network network, Kernels kernels) {
+        this.network = network;
+        this.kernels = kernels;
+        this.accumulators = new short[Search.MAX_PLY + 1][2][network.getHiddenSize()];
+    }
+
+
+
+    @Override
+    public void reset(Position position) {
+        ply = 0;
+        short[] weights = network.featureWeights();
+        for (int perspective = Pieces.WHITE; perspective <= Pieces.BLACK; perspective++) {
+            short[] accumulator = accumulators[0][perspective];
+            System.arraycopy(network.featureBiases(), 0, accumulator, 0, accumulator.length);
+            for (int square = 0; square < 64; square++) {
+                int piece = position.pieceAt(square);
+                if (piece != Pieces.NONE) kernels.add(accumulator, weights, network.feature(perspective, piece, square));
+            }
+        }
+    }
+
+
+
+    @Override
+    public void makeMove(Position position, int move) {
+        for (int perspective = Pieces.WHITE; perspective <= Pieces.BLACK; perspective++) {
+            short[] parent = accumulators[ply][perspective];
+            System.arraycopy(parent, 0, accumulators[ply + 1][perspective], 0, parent.length);
+        }
+        ply++;
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = position.pieceAt(from);
+        int us = Pieces.color(piece);
+
+        remove(piece, from);
+        if (Move.isEnPassant(move)) {
+            remove(Pieces.make(us ^ 1, Pieces.PAWN), to + (us == Pieces.WHITE ? -8 : 8));
+        } else if (position.pieceAt(to) != Pieces.NONE) {
+            remove(position.pieceAt(to), to);
+        }
+        add(Move.isPromotion(move) ? Pieces.make(us, Move.promotion(move)) : piece, to);
+
+        if (Move.isCastling(move)) {
+            int rook = Pieces.make(us, Pieces.ROOK);
+            boolean kingside = to > from;
+            remove(rook, kingside ? from + 3 : from - 4);
+            add(rook, kingside ? from + 1 : from - 1);
+        }
+    }
+
+
+
+    @Override
+    public void unmakeMove() {
+        ply--;
+    }
+
+
+
+    @Override
+    public int evaluate(Position position) {
+        short[][] current = accumulators[ply];
+        int us = position.getSideToMove();
+        return network.centipawns(kernels.output(current[us], current[us ^ 1], network.outputWeights()));
+    }
+
+
+
+    private void add(int piece, int square) {
+        short[][] current = accumulators[ply];
+        for (int perspective = Pieces.WHITE; perspective <= Pieces.BLACK; perspective++) {
+            kernels.add(current[perspective], network.featureWeights(), network.feature(perspective, piece, square));
+        }
+    }
+
+
+
+    private void remove(int piece, int square) {
+        short[][] current = accumulators[ply];
+        for (int perspective = Pieces.WHITE; perspective <= Pieces.BLACK; perspective++) {
+            kernels.subtract(current[perspective], network.featureWeights(), network.feature(perspective, piece, square));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.aouessar.chessgame.ai.nnue;
+
+final class ScalarKernels implements Kernels {
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset) {
+        for (int i = 0; i < accumulator.length; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+
+
+    @Override
+    public void subtract(short[] accumulator, short[] weights, int offset) {
+        for (int i = 0; i < accumulator.length; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+
+
+    @Override
+    public int output(short[] us, short[] them, short[] weights) {
+        int size = us.length;
+        int sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += clip(us[i]) * weights[i] + clip(them[i]) * weights[size + i];
+        }
+        return sum;
+    }
+
+
+
+    private static int clip(short value) {
+        return Math.max(0, Math.min(Network.QA, value));
+    }
+
+
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
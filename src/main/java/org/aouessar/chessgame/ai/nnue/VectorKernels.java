@@ -0,0 +1,129 @@
+package org.aouessar.chessgame.ai.nnue;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Only loaded when the Vector API module is present, see {@link Kernels#best()}.
+ * <p>
+ * The JIT only turns vector operations into SIMD instructions when the species is a constant, so each width
+ * has its own static species and every kernel switches to a loop written against constants.
+ * Int species match the short ones in width, the output layer reads each pair of shorts as one int.
+ */
+final class VectorKernels implements Kernels {
+
+    private static final VectorSpecies<Short> SHORTS_64 = ShortVector.SPECIES_64;
+
+    private static final VectorSpecies<Short> SHORTS_128 = ShortVector.SPECIES_128;
+
+    private static final VectorSpecies<Short> SHORTS_256 = ShortVector.SPECIES_256;
+
+    private static final VectorSpecies<Short> SHORTS_512 = ShortVector.SPECIES_512;
+
+    private static final VectorSpecies<Integer> INTS_64 = IntVector.SPECIES_64;
+
+    private static final VectorSpecies<Integer> INTS_128 = IntVector.SPECIES_128;
+
+    private static final VectorSpecies<Integer> INTS_256 = IntVector.SPECIES_256;
+
+    private static final VectorSpecies<Integer> INTS_512 = IntVector.SPECIES_512;
+
+    private final int bits;
+
+
+
+    VectorKernels(int bits) {
+        if (bits != 64 && bits != 128 && bits != 256 && bits != 512) {
+            throw new IllegalArgumentException("Unsupported vector width: " + bits);
+        }
+        this.bits = bits;
+    }
+
+
+
+    static Kernels preferred() {
+        return new VectorKernels(ShortVector.SPECIES_PREFERRED.vectorBitSize());
+    }
+
+
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset) {
+        switch (bits) {
+            case 64 -> update(SHORTS_64, accumulator, weights, offset, 1);
+            case 128 -> update(SHORTS_128, accumulator, weights, offset, 1);
+            case 256 -> update(SHORTS_256, accumulator, weights, offset, 1);
+            default -> update(SHORTS_512, accumulator, weights, offset, 1);
+        }
+    }
+
+
+
+    @Override
+    public void subtract(short[] accumulator, short[] weights, int offset) {
+        switch (bits) {
+            case 64 -> update(SHORTS_64, accumulator, weights, offset, -1);
+            case 128 -> update(SHORTS_128, accumulator, weights, offset, -1);
+            case 256 -> update(SHORTS_256, accumulator, weights, offset, -1);
+            default -> update(SHORTS_512, accumulator, weights, offset, -1);
+        }
+    }
+
+
+
+    @Override
+    public int output(short[] us, short[] them, short[] weights) {
+        return switch (bits) {
+            case 64 -> dot(SHORTS_64, INTS_64, us, weights, 0) + dot(SHORTS_64, INTS_64, them, weights, us.length);
+            case 128 -> dot(SHORTS_128, INTS_128, us, weights, 0) + dot(SHORTS_128, INTS_128, them, weights, us.length);
+            case 256 -> dot(SHORTS_256, INTS_256, us, weights, 0) + dot(SHORTS_256, INTS_256, them, weights, us.length);
+            default -> dot(SHORTS_512, INTS_512, us, weights, 0) + dot(SHORTS_512, INTS_512, them, weights, us.length);
+        };
+    }
+
+
+
+    private static void update(VectorSpecies<Short> shorts, short[] accumulator, short[] weights, int offset, int sign) {
+        int i = 0;
+        for (int bound = shorts.loopBound(accumulator.length); i < bound; i += shorts.length()) {
+            ShortVector current = ShortVector.fromArray(shorts, accumulator, i);
+            ShortVector weight = ShortVector.fromArray(shorts, weights, offset + i);
+            (sign > 0 ? current.add(weight) : current.sub(weight)).intoArray(accumulator, i);
+        }
+        for (; i < accumulator.length; i++) {
+            accumulator[i] += sign * weights[offset + i];
+        }
+    }
+
+
+
+    private static int dot(VectorSpecies<Short> shorts, VectorSpecies<Integer> ints, short[] accumulator, short[] weights, int offset) {
+        IntVector sum = IntVector.zero(ints);
+        int i = 0;
+        for (int bound = shorts.loopBound(accumulator.length); i < bound; i += shorts.length()) {
+            // Products overflow shorts. Rather than converting, which the JIT does not compile well, each pair of
+            // shorts is read as one int and split with shifts into its sign-extended low and high halves
+            IntVector values = ShortVector.fromArray(shorts, accumulator, i).reinterpretAsInts();
+            IntVector weight = ShortVector.fromArray(shorts, weights, offset + i).reinterpretAsInts();
+            IntVector low = values.lanewise(VectorOperators.LSHL, 16).lanewise(VectorOperators.ASHR, 16).max(0).min(Network.QA);
+            IntVector high = values.lanewise(VectorOperators.ASHR, 16).max(0).min(Network.QA);
+            sum = sum.add(low.mul(weight.lanewise(VectorOperators.LSHL, 16).lanewise(VectorOperators.ASHR, 16)))
+                    .add(high.mul(weight.lanewise(VectorOperators.ASHR, 16)));
+        }
+
+        int result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < accumulator.length; i++) {
+            result += Math.max(0, Math.min(Network.QA, accumulator[i])) * weights[offset + i];
+        }
+        return result;
+    }
+
+
+
+    @Override
+    public String name() {
+        return "vector" + bits;
+    }
+}
@@ -0,0 +1,140 @@
+package org.aouessar.chessgame.book;
+
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A Polyglot {@code .bin} opening book, memory-mapped and binary searched on {@link PolyglotKey}.
+ * <p>
+ * Entries are 16 bytes, big endian, sorted by key: the key, the move, its weight, and 4 bytes of learning data
+ * left unused. A move packs the destination square in bits 0-5, the origin in bits 6-11 and the promotion
+ * (1 knight to 4 queen) in bits 12-14, with castling written as the king taking its own rook.
+ */
+public class OpeningBook {
+
+    private static final int ENTRY_BYTES = 16;
+
+    private final Path file;
+
+    private final ByteBuffer entries;
+
+    private final int count;
+
+
+
+    public record Entry(int move, int weight) {
+    }
+
+
+
+    public OpeningBook(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % ENTRY_BYTES != 0) throw new IOException("Not a Polyglot book: " + file);
+            if (size > Integer.MAX_VALUE) throw new IOException("Book larger than 2 GB: " + file);
+
+            this.file = file;
+            this.entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            this.count = (int) (size / ENTRY_BYTES);
+        }
+    }
+
+
+
+    /**
+     * @return the legal book moves of the position with their weights, empty once out of book
+     */
+    public List<Entry> entries(Position position) {
+        long key = PolyglotKey.of(position);
+        List<Entry> found = new ArrayList<>();
+        MoveList legalMoves = null;
+
+        for (int i = firstEntry(key); i < count && entries.getLong(i * ENTRY_BYTES) == key; i++) {
+            if (legalMoves == null) {
+                legalMoves = new MoveList();
+                MoveGenerator.generateLegalMoves(position, legalMoves);
+            }
+            // A key collision or a corrupt entry gives a move that is not legal here
+            int move = toMove(position, entries.getShort(i * ENTRY_BYTES + 8) & 0xFFFF, legalMoves);
+            if (move != Move.NONE) found.add(new Entry(move, entries.getShort(i * ENTRY_BYTES + 10) & 0xFFFF));
+        }
+        return found;
+    }
+
+
+
+    /**
+     * Picks one of the book moves at random, each as likely as its weight.
+     * @return the move, or {@link Move#NONE} when the position is out of book
+     */
+    public int pickMove(Position position) {
+        List<Entry> found = entries(position);
+        int total = found.stream().mapToInt(Entry::weight).sum();
+        if (total == 0) return Move.NONE;
+
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (Entry entry : found) {
+            pick -= entry.weight();
+            if (pick < 0) return entry.move();
+        }
+        return Move.NONE;
+    }
+
+
+
+    public Path getFile() {
+        return file;
+    }
+
+
+
+    public int getCount() {
+        return count;
+    }
+
+
+
+    /**
+     * @return the first entry whose key is not below {@code key}, keys being unsigned
+     */
+    private int firstEntry(long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(entries.getLong(middle * ENTRY_BYTES), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+
+
+    private static int toMove(Position position, int bookMove, MoveList legalMoves) {
+        int to = bookMove & 63;
+        int from = bookMove >>> 6 & 63;
+        int promotion = bookMove >>> 12 & 7;
+
+        int piece = position.pieceAt(from);
+        int target = position.pieceAt(to);
+        if (Pieces.type(piece) == Pieces.KING && target != Pieces.NONE && Pieces.color(target) == Pieces.color(piece)) {
+            to = to > from ? from + 2 : from - 2;
+        }
+        return legalMoves.find(from, to, promotion == 0 ? Pieces.NONE : promotion);
+    }
+}
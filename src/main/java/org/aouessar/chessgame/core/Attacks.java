@@ -0,0 +1,241 @@
+package org.aouessar.chessgame.core;
+
+/**
+ * Attack sets of every piece type on a bitboard.
+ * Leaper attacks are precomputed per square and slider attacks use magic bitboards, so every query is a table lookup.
+ * All tables are built once when the class is loaded.
+ */
+public final class Attacks {
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    private static final long NOT_FILE_A = ~Bitboards.FILE_A;
+
+    private static final long NOT_FILE_H = ~Bitboards.FILE_H;
+
+    private static final long NOT_FILE_AB = ~(Bitboards.FILE_A | Bitboards.FILE_A << 1);
+
+    private static final long NOT_FILE_GH = ~(Bitboards.FILE_H | Bitboards.FILE_H >>> 1);
+
+    private static final long[] KNIGHT = new long[64];
+
+    private static final long[] KING = new long[64];
+
+    private static final long[][] PAWN = new long[2][64];
+
+    private static final long[][] BETWEEN = new long[64][64];
+
+    private static final long[][] LINE = new long[64][64];
+
+    private static final Magic[] ROOK_MAGICS = new Magic[64];
+
+    private static final Magic[] BISHOP_MAGICS = new Magic[64];
+
+    // Seeds giving a quick magic search for each rank, the search itself is deterministic
+    private static final long[] SEEDS = {728, 10316, 55013, 32803, 12281, 15100, 16645, 255};
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            long b = Bitboards.bit(square);
+            KNIGHT[square] = ((b & NOT_FILE_H) << 17) | ((b & NOT_FILE_A) << 15)
+                    | ((b & NOT_FILE_GH) << 10) | ((b & NOT_FILE_AB) << 6)
+                    | ((b & NOT_FILE_A) >>> 17) | ((b & NOT_FILE_H) >>> 15)
+                    | ((b & NOT_FILE_AB) >>> 10) | ((b & NOT_FILE_GH) >>> 6);
+
+            long sides = ((b & NOT_FILE_A) >>> 1) | ((b & NOT_FILE_H) << 1);
+            long row = b | sides;
+            KING[square] = sides | (row << 8) | (row >>> 8);
+
+            PAWN[Pieces.WHITE][square] = ((b & NOT_FILE_A) << 7) | ((b & NOT_FILE_H) << 9);
+            PAWN[Pieces.BLACK][square] = ((b & NOT_FILE_A) >>> 9) | ((b & NOT_FILE_H) >>> 7);
+        }
+
+        long[] rookTable = new long[0x19000];
+        long[] bishopTable = new long[0x1480];
+        initMagics(ROOK_MAGICS, rookTable, ROOK_DIRECTIONS);
+        initMagics(BISHOP_MAGICS, bishopTable, BISHOP_DIRECTIONS);
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b) continue;
+                long ends = Bitboards.bit(a) | Bitboards.bit(b);
+                if ((rookAttacks(a, 0L) & Bitboards.bit(b)) != 0) {
+                    LINE[a][b] = (rookAttacks(a, 0L) & rookAttacks(b, 0L)) | ends;
+                    BETWEEN[a][b] = rookAttacks(a, Bitboards.bit(b)) & rookAttacks(b, Bitboards.bit(a));
+                } else if ((bishopAttacks(a, 0L) & Bitboards.bit(b)) != 0) {
+                    LINE[a][b] = (bishopAttacks(a, 0L) & bishopAttacks(b, 0L)) | ends;
+                    BETWEEN[a][b] = bishopAttacks(a, Bitboards.bit(b)) & bishopAttacks(b, Bitboards.bit(a));
+                }
+            }
+        }
+    }
+
+
+
+    private Attacks() {
+    }
+
+
+
+    public static long pawnAttacks(int color, int square) {
+        return PAWN[color][square];
+    }
+
+
+
+    public static long knightAttacks(int square) {
+        return KNIGHT[square];
+    }
+
+
+
+    public static long kingAttacks(int square) {
+        return KING[square];
+    }
+
+
+
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_MAGICS[square].attacks(occupied);
+    }
+
+
+
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_MAGICS[square].attacks(occupied);
+    }
+
+
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+
+
+    /**
+     * @return the squares strictly between two squares sharing a rank, file or diagonal, empty otherwise
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+
+
+    /**
+     * @return the whole rank, file or diagonal going through both squares, empty if they are not aligned
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+
+
+    /**
+     * Attacks of a sliding piece traced ray by ray, only used to fill the magic tables.
+     */
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0L;
+        int rank = Bitboards.rank(square);
+        int file = Bitboards.col(square);
+
+        for (int[] direction : directions) {
+            int r = rank + direction[0];
+            int f = file + direction[1];
+            while (r >= 0 && r < 8 && f >= 0 && f < 8) {
+                long b = 1L << (r * 8 + f);
+                attacks |= b;
+                if ((occupied & b) != 0) break; // Ray is blocked
+                r += direction[0];
+                f += direction[1];
+            }
+        }
+
+        return attacks;
+    }
+
+
+
+    /**
+     * Finds a magic number per square mapping every relevant occupancy to its attack set without harmful collisions.
+     * All squares share one attack table, each magic owns a slice of it starting at {@code offset}.
+     */
+    private static void initMagics(Magic[] magics, long[] table, int[][] directions) {
+        long[] occupancies = new long[4096];
+        long[] references = new long[4096];
+        int[] epoch = new int[4096];
+        int attempt = 0;
+        int offset = 0;
+
+        for (int square = 0; square < 64; square++) {
+            // Board edges are not relevant: a piece there never changes how far the ray goes
+            long edges = ((Bitboards.RANK_1 | Bitboards.RANK_8) & ~(Bitboards.RANK_1 << (8 * Bitboards.rank(square))))
+                    | ((Bitboards.FILE_A | Bitboards.FILE_H) & ~(Bitboards.FILE_A << Bitboards.col(square)));
+            long mask = slidingAttacks(square, 0L, directions) & ~edges;
+            int shift = 64 - Long.bitCount(mask);
+
+            // Enumerate every subset of the mask with the carry-rippler trick
+            int size = 0;
+            long subset = 0L;
+            do {
+                occupancies[size] = subset;
+                references[size] = slidingAttacks(square, subset, directions);
+                size++;
+                subset = (subset - mask) & mask;
+            } while (subset != 0);
+
+            long[] seed = {SEEDS[Bitboards.rank(square)]};
+            long magic;
+            int i;
+            do {
+                do {
+                    magic = sparseRandom(seed);
+                } while (Long.bitCount((magic * mask) >>> 56) < 6);
+
+                // The epoch avoids clearing the slice between two failed attempts
+                attempt++;
+                for (i = 0; i < size; i++) {
+                    int index = offset + (int) ((occupancies[i] * magic) >>> shift);
+                    if (epoch[index - offset] < attempt) {
+                        epoch[index - offset] = attempt;
+                        table[index] = references[i];
+                    } else if (table[index] != references[i]) {
+                        break;
+                    }
+                }
+            } while (i < size);
+
+            magics[square] = new Magic(mask, magic, shift, offset, table);
+            offset += size;
+        }
+    }
+
+
+
+    private static long sparseRandom(long[] seed) {
+        return random(seed) & random(seed) & random(seed);
+    }
+
+
+
+    private static long random(long[] seed) {
+        // xorshift64*
+        long s = seed[0];
+        s ^= s >>> 12;
+        s ^= s << 25;
+        s ^= s >>> 27;
+        seed[0] = s;
+        return s * 2685821657736338717L;
+    }
+
+
+
+    private record Magic(long mask, long magic, int shift, int offset, long[] table) {
+
+        long attacks(long occupied) {
+            return table[offset + (int) (((occupied & mask) * magic) >>> shift)];
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.aouessar.chessgame.core;
+
+/**
+ * Square and bitboard helpers.
+ * Squares are numbered a1 = 0 ... h8 = 63, while the UI keeps using (row, col) with row 0 being rank 8.
+ */
+public final class Bitboards {
+
+    public static final long FILE_A = 0x0101010101010101L;
+
+    public static final long FILE_H = FILE_A << 7;
+
+    public static final long RANK_1 = 0xFFL;
+
+    public static final long RANK_2 = RANK_1 << 8;
+
+    public static final long RANK_7 = RANK_1 << 48;
+
+    public static final long RANK_8 = RANK_1 << 56;
+
+    // a1, c1, ..., h8
+    public static final long DARK_SQUARES = 0xAA55AA55AA55AA55L;
+
+
+
+    private Bitboards() {
+    }
+
+
+
+    public static int square(int row, int col) {
+        return (7 - row) * 8 + col;
+    }
+
+
+
+    public static int row(int square) {
+        return 7 - (square >>> 3);
+    }
+
+
+
+    public static int col(int square) {
+        return square & 7;
+    }
+
+
+
+    public static int rank(int square) {
+        return square >>> 3;
+    }
+
+
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+
+
+    public static boolean contains(long bitboard, int square) {
+        return (bitboard & (1L << square)) != 0;
+    }
+
+
+
+    /**
+     * @return the lowest set square, the caller is expected to pop it with {@code b &= b - 1}
+     */
+    public static int first(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+
+
+    public static String squareName(int square) {
+        return "" + (char) ('a' + col(square)) + (char) ('1' + rank(square));
+    }
+
+
+
+    /**
+     * @return the square of a coordinate such as "e4", or -1 if it is not a valid square
+     */
+    public static int parseSquare(String name) {
+        if (name == null || name.length() != 2) return -1;
+
+        int col = name.charAt(0) - 'a';
+        int rank = name.charAt(1) - '1';
+        if (col < 0 || col > 7 || rank < 0 || rank > 7) return -1;
+
+        return rank * 8 + col;
+    }
+}
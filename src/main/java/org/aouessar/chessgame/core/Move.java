@@ -0,0 +1,129 @@
+package org.aouessar.chessgame.core;
+
+/**
+ * Moves are packed in 16 bits: origin square in bits 0-5, destination in bits 6-11, promotion piece in bits 12-13
+ * (knight, bishop, rook or queen) and the move kind in bits 14-15. {@link #NONE} is a1a1, which is never a legal move.
+ */
+public final class Move {
+
+    public static final int NONE = 0;
+
+    public static final int NORMAL = 0;
+
+    public static final int PROMOTION = 1;
+
+    public static final int EN_PASSANT = 2;
+
+    public static final int CASTLING = 3;
+
+
+
+    private Move() {
+    }
+
+
+
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+
+
+    /**
+     * @param promotion piece type the pawn promotes to, {@link Pieces#NONE} for any other move
+     */
+    public static int of(int from, int to, int promotion) {
+        if (promotion == Pieces.NONE) return of(from, to);
+        return from | (to << 6) | ((promotion - Pieces.KNIGHT) << 12) | (PROMOTION << 14);
+    }
+
+
+
+    public static int enPassant(int from, int to) {
+        return from | (to << 6) | (EN_PASSANT << 14);
+    }
+
+
+
+    /**
+     * @param to destination of the king, the rook square is implied
+     */
+    public static int castling(int from, int to) {
+        return from | (to << 6) | (CASTLING << 14);
+    }
+
+
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+
+
+    public static int kind(int move) {
+        return move >>> 14;
+    }
+
+
+
+    /**
+     * @return the promotion piece type, or {@link Pieces#NONE} if the move is not a promotion
+     */
+    public static int promotion(int move) {
+        return isPromotion(move) ? ((move >>> 12) & 0x3) + Pieces.KNIGHT : Pieces.NONE;
+    }
+
+
+
+    public static boolean isPromotion(int move) {
+        return kind(move) == PROMOTION;
+    }
+
+
+
+    public static boolean isEnPassant(int move) {
+        return kind(move) == EN_PASSANT;
+    }
+
+
+
+    public static boolean isCastling(int move) {
+        return kind(move) == CASTLING;
+    }
+
+
+
+    public static String toUci(int move) {
+        String uci = Bitboards.squareName(from(move)) + Bitboards.squareName(to(move));
+        return isPromotion(move) ? uci + Character.toLowerCase(Pieces.toChar(promotion(move))) : uci;
+    }
+
+
+
+    /**
+     * Reads a move in UCI notation ("e2e4", "e7e8q") and returns the matching legal move, flags included.
+     * @return the move, or {@link #NONE} if the text is malformed or the move is not in {@code legalMoves}
+     */
+    public static int fromUci(String uci, MoveList legalMoves) {
+        if (uci == null || uci.length() < 4 || uci.length() > 5) return NONE;
+
+        int from = Bitboards.parseSquare(uci.substring(0, 2));
+        int to = Bitboards.parseSquare(uci.substring(2, 4));
+        if (from < 0 || to < 0) return NONE;
+
+        int promotion = Pieces.NONE;
+        if (uci.length() == 5) {
+            int piece = Pieces.fromChar(uci.charAt(4));
+            if (piece == Pieces.NONE) return NONE;
+            promotion = Pieces.type(piece);
+        }
+
+        return legalMoves.find(from, to, promotion);
+    }
+}
@@ -0,0 +1,277 @@
+package org.aouessar.chessgame.core;
+
+import static org.aouessar.chessgame.core.Pieces.*;
+
+/**
+ * Generates the legal moves of the side to move. Each piece only emits the squares it can actually reach.
+ * Legality comes from the checkers and pinned pieces computed once per position: non-king moves must land in the
+ * check-evasion mask and pinned pieces must stay on their pin line, king moves are checked against the position's
+ * attack map and only en passant needs a real attack test. The position is never modified, which keeps generation safe on a shared position.
+ */
+public final class MoveGenerator {
+
+    private MoveGenerator() {
+    }
+
+
+
+    /**
+     * Fills {@code moves} with every legal move of the side to move, the list is cleared first.
+     */
+    public static void generateLegalMoves(Position position, MoveList moves) {
+        moves.clear();
+
+        int us = position.getSideToMove();
+        int king = position.kingSquare(us);
+        long own = position.getOccupancy()[us];
+        long enemy = position.getOccupancy()[us ^ 1];
+        long occupied = own | enemy;
+
+        if (king < 0) return;
+
+        long checkers = position.attackersTo(king, occupied) & enemy;
+        generateKingMoves(position, us, king, ~own, checkers, moves);
+
+        // Double check, only the king can move
+        if ((checkers & (checkers - 1)) != 0) return;
+
+        // Squares that capture the checker or block its ray, everything when not in check
+        long checkMask = checkers == 0 ? ~0L : checkers | Attacks.between(king, Bitboards.first(checkers));
+        long pinned = position.pinnedPieces(us);
+        long targets = ~own & checkMask;
+
+        generatePawnMoves(position, us, king, enemy, occupied, checkMask, pinned, moves);
+
+        // A pinned knight can never stay on its pin line
+        for (long knights = position.pieces(us, KNIGHT) & ~pinned; knights != 0; knights &= knights - 1) {
+            int from = Bitboards.first(knights);
+            addMoves(from, Attacks.knightAttacks(from) & targets, moves);
+        }
+
+        for (long bishops = position.pieces(us, BISHOP); bishops != 0; bishops &= bishops - 1) {
+            int from = Bitboards.first(bishops);
+            addMoves(from, Attacks.bishopAttacks(from, occupied) & targets & pinMask(king, from, pinned), moves);
+        }
+
+        for (long rooks = position.pieces(us, ROOK); rooks != 0; rooks &= rooks - 1) {
+            int from = Bitboards.first(rooks);
+            addMoves(from, Attacks.rookAttacks(from, occupied) & targets & pinMask(king, from, pinned), moves);
+        }
+
+        for (long queens = position.pieces(us, QUEEN); queens != 0; queens &= queens - 1) {
+            int from = Bitboards.first(queens);
+            addMoves(from, Attacks.queenAttacks(from, occupied) & targets & pinMask(king, from, pinned), moves);
+        }
+
+        if (checkers == 0) {
+            generateCastling(position, us, king, occupied, moves);
+        }
+    }
+
+
+
+    /**
+     * Same legality rules as {@link #generateLegalMoves}, but stops at the first legal move instead of listing them,
+     * which is all that deciding between mate, stalemate and a game that goes on needs.
+     */
+    public static boolean hasLegalMove(Position position) {
+        int us = position.getSideToMove();
+        int king = position.kingSquare(us);
+        long own = position.getOccupancy()[us];
+        long enemy = position.getOccupancy()[us ^ 1];
+        long occupied = own | enemy;
+
+        if (king < 0) return false;
+
+        long checkers = position.attackersTo(king, occupied) & enemy;
+        if ((Attacks.kingAttacks(king) & ~own & ~kingDanger(position, us, king, checkers)) != 0) return true;
+        if ((checkers & (checkers - 1)) != 0) return false;
+
+        long checkMask = checkers == 0 ? ~0L : checkers | Attacks.between(king, Bitboards.first(checkers));
+        long pinned = position.pinnedPieces(us);
+        long targets = ~own & checkMask;
+
+        // Castling is not needed: when it is legal, the king step towards the rook is legal too
+        for (long knights = position.pieces(us, KNIGHT) & ~pinned; knights != 0; knights &= knights - 1) {
+            if ((Attacks.knightAttacks(Bitboards.first(knights)) & targets) != 0) return true;
+        }
+
+        long diagonals = position.pieces(us, BISHOP) | position.pieces(us, QUEEN);
+        for (; diagonals != 0; diagonals &= diagonals - 1) {
+            int from = Bitboards.first(diagonals);
+            if ((Attacks.bishopAttacks(from, occupied) & targets & pinMask(king, from, pinned)) != 0) return true;
+        }
+
+        long orthogonals = position.pieces(us, ROOK) | position.pieces(us, QUEEN);
+        for (; orthogonals != 0; orthogonals &= orthogonals - 1) {
+            int from = Bitboards.first(orthogonals);
+            if ((Attacks.rookAttacks(from, occupied) & targets & pinMask(king, from, pinned)) != 0) return true;
+        }
+
+        long pawns = position.pieces(us, PAWN);
+        if ((pawnTargets(us, pawns & ~pinned, enemy, occupied) & checkMask) != 0) return true;
+        for (long pins = pawns & pinned; pins != 0; pins &= pins - 1) {
+            int from = Bitboards.first(pins);
+            if ((pawnTargets(us, Bitboards.bit(from), enemy, occupied) & checkMask & Attacks.line(king, from)) != 0) return true;
+        }
+
+        int enPassant = position.getEnPassantSquare();
+        if (enPassant >= 0) {
+            for (long attackers = Attacks.pawnAttacks(us ^ 1, enPassant) & pawns; attackers != 0; attackers &= attackers - 1) {
+                if (isLegalEnPassant(position, us, king, Bitboards.first(attackers), enPassant, occupied)) return true;
+            }
+        }
+        return false;
+    }
+
+
+
+    /**
+     * @return every square the given pawns can push or capture to, en passant excluded
+     */
+    private static long pawnTargets(int us, long pawns, long enemy, long occupied) {
+        long empty = ~occupied;
+        if (us == WHITE) {
+            long singles = (pawns << 8) & empty;
+            return singles | (((singles & (Bitboards.RANK_2 << 8)) << 8) & empty)
+                    | ((((pawns & ~Bitboards.FILE_A) << 7) | ((pawns & ~Bitboards.FILE_H) << 9)) & enemy);
+        }
+        long singles = (pawns >>> 8) & empty;
+        return singles | (((singles & (Bitboards.RANK_7 >>> 8)) >>> 8) & empty)
+                | ((((pawns & ~Bitboards.FILE_A) >>> 9) | ((pawns & ~Bitboards.FILE_H) >>> 7)) & enemy);
+    }
+
+
+
+    /**
+     * @return the squares a piece may move to without breaking a pin, every square when it is not pinned
+     */
+    private static long pinMask(int king, int from, long pinned) {
+        return Bitboards.contains(pinned, from) ? Attacks.line(king, from) : ~0L;
+    }
+
+
+
+    private static void generateKingMoves(Position position, int us, int king, long targets, long checkers, MoveList moves) {
+        addMoves(king, Attacks.kingAttacks(king) & targets & ~kingDanger(position, us, king, checkers), moves);
+    }
+
+
+
+    /**
+     * @return the squares the king of {@code us} may not step on
+     */
+    private static long kingDanger(Position position, int us, int king, long checkers) {
+        int them = us ^ 1;
+        long danger = position.attackedBy(them);
+
+        // A slider giving check also covers the square behind the king, its ray only stops at the king today
+        long sliders = checkers & (position.pieces(them, BISHOP) | position.pieces(them, ROOK) | position.pieces(them, QUEEN));
+        for (; sliders != 0; sliders &= sliders - 1) {
+            int slider = Bitboards.first(sliders);
+            danger |= Attacks.line(king, slider) & ~Bitboards.bit(slider);
+        }
+
+        return danger;
+    }
+
+
+
+    private static void generatePawnMoves(Position position, int us, int king, long enemy, long occupied,
+                                          long checkMask, long pinned, MoveList moves) {
+        long pawns = position.pieces(us, PAWN);
+        long empty = ~occupied;
+        long promotionRank = us == WHITE ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        int forward = us == WHITE ? 8 : -8;
+
+        long singles;
+        long doubles;
+        long leftCaptures;
+        long rightCaptures;
+        if (us == WHITE) {
+            singles = (pawns << 8) & empty;
+            doubles = ((singles & (Bitboards.RANK_2 << 8)) << 8) & empty;
+            leftCaptures = ((pawns & ~Bitboards.FILE_A) << 7) & enemy;
+            rightCaptures = ((pawns & ~Bitboards.FILE_H) << 9) & enemy;
+        } else {
+            singles = (pawns >>> 8) & empty;
+            doubles = ((singles & (Bitboards.RANK_7 >>> 8)) >>> 8) & empty;
+            leftCaptures = ((pawns & ~Bitboards.FILE_A) >>> 9) & enemy;
+            rightCaptures = ((pawns & ~Bitboards.FILE_H) >>> 7) & enemy;
+        }
+
+        addPawnMoves(singles & checkMask, forward, promotionRank, king, pinned, moves);
+        addPawnMoves(doubles & checkMask, 2 * forward, promotionRank, king, pinned, moves);
+        addPawnMoves(leftCaptures & checkMask, forward - 1, promotionRank, king, pinned, moves);
+        addPawnMoves(rightCaptures & checkMask, forward + 1, promotionRank, king, pinned, moves);
+
+        // En passant removes two pawns from the same rank, too unusual for the masks: run the real attack test
+        int enPassant = position.getEnPassantSquare();
+        if (enPassant >= 0) {
+            for (long attackers = Attacks.pawnAttacks(us ^ 1, enPassant) & pawns; attackers != 0; attackers &= attackers - 1) {
+                int from = Bitboards.first(attackers);
+                if (isLegalEnPassant(position, us, king, from, enPassant, occupied)) {
+                    moves.add(Move.enPassant(from, enPassant));
+                }
+            }
+        }
+    }
+
+
+
+    private static boolean isLegalEnPassant(Position position, int us, int king, int from, int enPassant, long occupied) {
+        int captured = enPassant - (us == WHITE ? 8 : -8);
+        long occupiedAfter = (occupied & ~Bitboards.bit(from) & ~Bitboards.bit(captured)) | Bitboards.bit(enPassant);
+        return !position.isSquareAttacked(king, us ^ 1, occupiedAfter, Bitboards.bit(captured));
+    }
+
+
+
+    private static void addPawnMoves(long targets, int offset, long promotionRank, int king, long pinned, MoveList moves) {
+        for (; targets != 0; targets &= targets - 1) {
+            int to = Bitboards.first(targets);
+            int from = to - offset;
+            if (Bitboards.contains(pinned, from) && !Bitboards.contains(Attacks.line(king, from), to)) continue;
+
+            if (Bitboards.contains(promotionRank, to)) {
+                moves.add(Move.of(from, to, QUEEN));
+                moves.add(Move.of(from, to, ROOK));
+                moves.add(Move.of(from, to, BISHOP));
+                moves.add(Move.of(from, to, KNIGHT));
+            } else {
+                moves.add(Move.of(from, to));
+            }
+        }
+    }
+
+
+
+    private static void generateCastling(Position position, int us, int king, long occupied, MoveList moves) {
+        int rights = position.getCastlingRights();
+        int kingSide = us == WHITE ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+        int queenSide = us == WHITE ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+
+        // The rights guarantee king and rook are still on their home squares, crossed squares come from the attack map
+        if ((rights & kingSide) != 0
+                && (occupied & (Bitboards.bit(king + 1) | Bitboards.bit(king + 2))) == 0
+                && !position.isSquareAttacked(king + 1, us ^ 1)
+                && !position.isSquareAttacked(king + 2, us ^ 1)) {
+            moves.add(Move.castling(king, king + 2));
+        }
+
+        if ((rights & queenSide) != 0
+                && (occupied & (Bitboards.bit(king - 1) | Bitboards.bit(king - 2) | Bitboards.bit(king - 3))) == 0
+                && !position.isSquareAttacked(king - 1, us ^ 1)
+                && !position.isSquareAttacked(king - 2, us ^ 1)) {
+            moves.add(Move.castling(king, king - 2));
+        }
+    }
+
+
+
+    private static void addMoves(int from, long targets, MoveList moves) {
+        for (; targets != 0; targets &= targets - 1) {
+            moves.add(Move.of(from, Bitboards.first(targets)));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.aouessar.chessgame.core;
+
+/**
+ * Reusable buffer of int moves. A position never has more than 218 legal moves, so one list is filled over and
+ * over without allocating.
+ */
+public class MoveList {
+
+    public static final int CAPACITY = 256;
+
+    private final int[] moves = new int[CAPACITY];
+
+    private int size;
+
+
+
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+
+
+    public int size() {
+        return size;
+    }
+
+
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+
+
+    public void clear() {
+        size = 0;
+    }
+
+
+
+    /**
+     * Keeps only the first {@code size} moves.
+     */
+    public void truncate(int size) {
+        this.size = size;
+    }
+
+
+
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) return true;
+        }
+        return false;
+    }
+
+
+
+    /**
+     * Looks a move up by its squares, so moves typed by a player or sent by an engine get their flags back.
+     * @param promotion piece type for promotions, {@link Pieces#NONE} otherwise
+     * @return the matching move, or {@link Move#NONE}
+     */
+    public int find(int from, int to, int promotion) {
+        for (int i = 0; i < size; i++) {
+            int move = moves[i];
+            if (Move.from(move) == from && Move.to(move) == to && Move.promotion(move) == promotion) return move;
+        }
+        return Move.NONE;
+    }
+}
@@ -0,0 +1,191 @@
+package org.aouessar.chessgame.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree, the standard way to check a move generator and measure its speed.
+ * Root moves are spread over a fork-join pool, each worker plays its subtree on its own copy of the position.
+ * An optional hash table remembers subtree counts so transpositions are only counted once.
+ */
+public class Perft {
+
+    /**
+     * Positions with well known node counts, together they cover castling, en passant, promotions and pins.
+     */
+    public record Reference(String name, String fen, int depth, long nodes) {
+    }
+
+    public static final List<Reference> REFERENCES = List.of(
+            new Reference("start", Position.START_FEN, 5, 4_865_609L),
+            new Reference("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 4, 4_085_603L),
+            new Reference("endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 5, 674_624L),
+            new Reference("promotions", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 4, 422_333L),
+            new Reference("talkchess", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 4, 2_103_487L),
+            new Reference("middlegame", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 4, 3_894_594L)
+    );
+
+    private final int threads;
+
+    private final Table table;
+
+
+
+    /**
+     * @param threads number of workers sharing the root moves
+     * @param hashMegabytes size of the subtree count cache, 0 to count every node
+     */
+    public Perft(int threads, int hashMegabytes) {
+        this.threads = Math.max(1, threads);
+        this.table = hashMegabytes > 0 ? new Table(hashMegabytes) : null;
+    }
+
+
+
+    public long perft(Position position, int depth) {
+        if (depth <= 0) return 1;
+
+        long nodes = 0;
+        for (long count : divide(position, depth).values()) {
+            nodes += count;
+        }
+        return nodes;
+    }
+
+
+
+    /**
+     * @return the node count below each root move, keyed by its UCI notation, in generation order
+     */
+    public Map<String, Long> divide(Position position, int depth) {
+        MoveList rootMoves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, rootMoves);
+        String fen = position.toFen();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<Long>> tasks = new ArrayList<>(rootMoves.size());
+            for (int i = 0; i < rootMoves.size(); i++) {
+                int move = rootMoves.get(i);
+                tasks.add(pool.submit(() -> {
+                    Position copy = Position.fromFen(fen);
+                    copy.makeMove(move);
+                    return count(copy, depth - 1, newLists(depth));
+                }));
+            }
+
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (int i = 0; i < rootMoves.size(); i++) {
+                result.put(Move.toUci(rootMoves.get(i)), tasks.get(i).join());
+            }
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+
+    public void clearHash() {
+        if (table != null) table.clear();
+    }
+
+
+
+    /**
+     * @return a one line summary like "Nodes: 4865609 | Time: 412 ms | NPS: 11809730"
+     */
+    public static String report(long nodes, long nanos) {
+        long millis = Math.max(1, nanos / 1_000_000);
+        return "Nodes: " + nodes + " | Time: " + millis + " ms | NPS: " + (nodes * 1000 / millis);
+    }
+
+
+
+    private long count(Position position, int depth, MoveList[] lists) {
+        if (depth == 0) return 1;
+
+        MoveList moves = lists[depth];
+        MoveGenerator.generateLegalMoves(position, moves);
+
+        // Bulk counting: the last ply only needs the number of legal moves
+        if (depth == 1) return moves.size();
+
+        long key = position.getKey();
+        if (table != null) {
+            long cached = table.probe(key, depth);
+            if (cached >= 0) return cached;
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            position.makeMove(moves.get(i));
+            nodes += count(position, depth - 1, lists);
+            position.unmakeMove();
+        }
+
+        if (table != null) table.store(key, depth, nodes);
+        return nodes;
+    }
+
+
+
+    private static MoveList[] newLists(int depth) {
+        MoveList[] lists = new MoveList[depth + 1];
+        for (int i = 0; i <= depth; i++) {
+            lists[i] = new MoveList();
+        }
+        return lists;
+    }
+
+
+
+    /**
+     * Always-replace cache of subtree counts shared by all workers without locks. Each entry is a key word and a data
+     * word, the key word is stored XORed with the data so an entry torn by two concurrent writes never validates.
+     */
+    private static final class Table {
+
+        private final long[] entries;
+
+        private final int mask;
+
+
+
+        Table(int megabytes) {
+            int size = Integer.highestOneBit((int) Math.min(1 << 26, (long) megabytes * 1024 * 1024 / 16));
+            this.entries = new long[size * 2];
+            this.mask = size - 1;
+        }
+
+
+
+        long probe(long key, int depth) {
+            int index = ((int) key & mask) * 2;
+            long check = entries[index];
+            long data = entries[index + 1];
+            if ((check ^ data) != key || (data & 0xFF) != depth) return -1;
+            return data >>> 8;
+        }
+
+
+
+        void store(long key, int depth, long nodes) {
+            int index = ((int) key & mask) * 2;
+            long data = (nodes << 8) | depth;
+            entries[index] = key ^ data;
+            entries[index + 1] = data;
+        }
+
+
+
+        void clear() {
+            Arrays.fill(entries, 0L);
+        }
+    }
+}
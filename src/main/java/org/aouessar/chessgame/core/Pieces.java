@@ -0,0 +1,80 @@
+package org.aouessar.chessgame.core;
+
+/**
+ * Integer piece codes used by the bitboard {@link Position}.
+ * A piece code is {@code color * 6 + type}, so it can index the twelve piece bitboards directly.
+ */
+public final class Pieces {
+
+    public static final int WHITE = 0;
+
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+
+    public static final int KNIGHT = 1;
+
+    public static final int BISHOP = 2;
+
+    public static final int ROOK = 3;
+
+    public static final int QUEEN = 4;
+
+    public static final int KING = 5;
+
+    public static final int NONE = -1;
+
+    public static final int WHITE_PAWN = 0;
+    public static final int WHITE_KNIGHT = 1;
+    public static final int WHITE_BISHOP = 2;
+    public static final int WHITE_ROOK = 3;
+    public static final int WHITE_QUEEN = 4;
+    public static final int WHITE_KING = 5;
+    public static final int BLACK_PAWN = 6;
+    public static final int BLACK_KNIGHT = 7;
+    public static final int BLACK_BISHOP = 8;
+    public static final int BLACK_ROOK = 9;
+    public static final int BLACK_QUEEN = 10;
+    public static final int BLACK_KING = 11;
+
+    private static final String FEN_CHARS = "PNBRQKpnbrqk";
+
+
+
+    private Pieces() {
+    }
+
+
+
+    public static int make(int color, int type) {
+        return color * 6 + type;
+    }
+
+
+
+    public static int type(int piece) {
+        return piece % 6;
+    }
+
+
+
+    public static int color(int piece) {
+        return piece / 6;
+    }
+
+
+
+    public static char toChar(int piece) {
+        return FEN_CHARS.charAt(piece);
+    }
+
+
+
+    /**
+     * @return the piece code of a FEN character, or {@link #NONE} if the character is not a piece
+     */
+    public static int fromChar(char ch) {
+        int piece = FEN_CHARS.indexOf(ch);
+        return piece < 0 ? NONE : piece;
+    }
+}
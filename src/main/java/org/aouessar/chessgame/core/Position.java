@@ -0,0 +1,698 @@
+package org.aouessar.chessgame.core;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+import static org.aouessar.chessgame.core.Pieces.*;
+
+/**
+ * Headless bitboard model of a chess position: one 64-bit set per piece kind and color,
+ * the occupancy of each color and a mailbox to answer "what is on this square" directly.
+ */
+@Getter
+public class Position {
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    public static final int WHITE_KINGSIDE = 1;
+
+    public static final int WHITE_QUEENSIDE = 2;
+
+    public static final int BLACK_KINGSIDE = 4;
+
+    public static final int BLACK_QUEENSIDE = 8;
+
+    // Rights kept when a move starts or ends on a square, only king and rook home squares clear any
+    private static final int[] CASTLING_MASKS = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASKS, 15);
+        CASTLING_MASKS[0] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASKS[4] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASKS[7] &= ~WHITE_KINGSIDE;
+        CASTLING_MASKS[56] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASKS[60] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASKS[63] &= ~BLACK_KINGSIDE;
+    }
+
+    // Home squares of the kings and rooks, where they stand while they may still castle
+    private static final int[] CASTLING_HOMES = {0, 4, 7, 56, 60, 63};
+
+    public static final int MAX_PIECES = 16;
+
+    private final long[] pieces = new long[12];
+
+    private final long[] occupancy = new long[2];
+
+    private final int[] squares = new int[64];
+
+    // Squares attacked by the piece standing on each square, kept up to date on every piece change
+    private final long[] attacksFrom = new long[64];
+
+    // Union of attacksFrom per color
+    private final long[] attackedBy = new long[2];
+
+    // Squares of each color's pieces, in no particular order, so loops visit at most 16 pieces
+    private final int[][] pieceList = new int[2][MAX_PIECES];
+
+    private final int[] pieceCount = new int[2];
+
+    // Index of the piece standing on a square inside its color's piece list
+    private final int[] listIndex = new int[64];
+
+    private final int[] kingSquares = {-1, -1};
+
+    // Undo stack, one entry per move played since the position was set up
+    private int[] undoMoves = new int[256];
+
+    private int[] undoStates = new int[256];
+
+    private long[] undoKeys = new long[256];
+
+    private int ply;
+
+    private int sideToMove;
+
+    private int castlingRights;
+
+    private int enPassantSquare;
+
+    private int halfMoveClock;
+
+    private int fullMoveNumber;
+
+    // Zobrist key of the position, XORed in place as pieces and state change
+    private long key;
+
+
+
+    public Position() {
+        Arrays.fill(squares, NONE);
+        this.sideToMove = WHITE;
+        this.enPassantSquare = -1;
+        this.fullMoveNumber = 1;
+    }
+
+
+
+    /**
+     * @return an independent copy, move history included so repetitions before the copy are still detected
+     */
+    public Position copy() {
+        Position copy = new Position();
+        System.arraycopy(pieces, 0, copy.pieces, 0, pieces.length);
+        System.arraycopy(occupancy, 0, copy.occupancy, 0, occupancy.length);
+        System.arraycopy(squares, 0, copy.squares, 0, squares.length);
+        System.arraycopy(attacksFrom, 0, copy.attacksFrom, 0, attacksFrom.length);
+        System.arraycopy(attackedBy, 0, copy.attackedBy, 0, attackedBy.length);
+        for (int color = WHITE; color <= BLACK; color++) {
+            System.arraycopy(pieceList[color], 0, copy.pieceList[color], 0, MAX_PIECES);
+        }
+        System.arraycopy(pieceCount, 0, copy.pieceCount, 0, pieceCount.length);
+        System.arraycopy(listIndex, 0, copy.listIndex, 0, listIndex.length);
+        System.arraycopy(kingSquares, 0, copy.kingSquares, 0, kingSquares.length);
+        copy.undoMoves = undoMoves.clone();
+        copy.undoStates = undoStates.clone();
+        copy.undoKeys = undoKeys.clone();
+        copy.ply = ply;
+        copy.sideToMove = sideToMove;
+        copy.castlingRights = castlingRights;
+        copy.enPassantSquare = enPassantSquare;
+        copy.halfMoveClock = halfMoveClock;
+        copy.fullMoveNumber = fullMoveNumber;
+        copy.key = key;
+        return copy;
+    }
+
+
+
+    public static Position fromFen(String fen) {
+        Position position = new Position();
+        String[] parts = fen.trim().split("\\s+");
+        String[] rows = parts[0].split("/");
+
+        if (rows.length != 8) {
+            throw new IllegalArgumentException("FEN board description must have 8 rows: " + parts[0]);
+        }
+
+        for (int row = 0; row < 8; row++) {
+            int col = 0;
+            for (char ch : rows[row].toCharArray()) {
+                if (Character.isDigit(ch)) {
+                    col += Character.getNumericValue(ch);
+                } else {
+                    int piece = Pieces.fromChar(ch);
+                    if (piece == NONE || col > 7) {
+                        throw new IllegalArgumentException("Invalid FEN character: " + ch);
+                    }
+                    if (position.pieceCount[Pieces.color(piece)] == MAX_PIECES) {
+                        throw new IllegalArgumentException("More than " + MAX_PIECES + " pieces of one color: " + parts[0]);
+                    }
+                    position.set(piece, Bitboards.square(row, col));
+                    col++;
+                }
+            }
+            if (col != 8) {
+                throw new IllegalArgumentException("Row does not have exactly 8 columns: " + rows[row]);
+            }
+        }
+
+        for (int color = WHITE; color <= BLACK; color++) {
+            if (Long.bitCount(position.pieces(color, KING)) != 1) {
+                throw new IllegalArgumentException("Each side needs exactly one king: " + parts[0]);
+            }
+        }
+
+        position.sideToMove = parts.length > 1 && "b".equals(parts[1]) ? BLACK : WHITE;
+
+        if (parts.length > 2) {
+            for (char ch : parts[2].toCharArray()) {
+                switch (ch) {
+                    case 'K' -> position.castlingRights |= WHITE_KINGSIDE;
+                    case 'Q' -> position.castlingRights |= WHITE_QUEENSIDE;
+                    case 'k' -> position.castlingRights |= BLACK_KINGSIDE;
+                    case 'q' -> position.castlingRights |= BLACK_QUEENSIDE;
+                    default -> { }
+                }
+            }
+        }
+
+        // Rights whose king or rook is off its home square could never be used, move generation trusts them
+        for (int square : CASTLING_HOMES) {
+            int home = Pieces.make(square < 8 ? WHITE : BLACK, (square & 7) == 4 ? KING : ROOK);
+            if (position.squares[square] != home) {
+                position.castlingRights &= CASTLING_MASKS[square];
+            }
+        }
+
+        if (parts.length > 3) {
+            // Same convention as makeMove: the square only counts when a pawn can take, which keeps keys comparable
+            int square = Bitboards.parseSquare(parts[3]);
+            if (square >= 0 && (Attacks.pawnAttacks(position.sideToMove ^ 1, square) & position.pieces(position.sideToMove, PAWN)) != 0) {
+                position.enPassantSquare = square;
+            }
+        }
+        if (parts.length > 4) position.halfMoveClock = Integer.parseInt(parts[4]);
+        if (parts.length > 5) position.fullMoveNumber = Integer.parseInt(parts[5]);
+
+        position.key ^= Zobrist.castling(position.castlingRights) ^ Zobrist.enPassant(position.enPassantSquare);
+        if (position.sideToMove == BLACK) position.key ^= Zobrist.side();
+
+        position.refreshAttackMaps();
+        return position;
+    }
+
+
+
+    /**
+     * Empties the board and places the first {@code count} pieces on their squares, with no castling rights,
+     * no en passant square and no history, so one instance can visit many positions without parsing FENs.
+     */
+    public void setUp(int[] piecesToPlace, int[] squaresToUse, int count, int side) {
+        for (int color = WHITE; color <= BLACK; color++) {
+            while (pieceCount[color] > 0) clear(pieceList[color][0]);
+        }
+
+        // Rebuilt from the key of no castling rights, set adds the pieces
+        key = Zobrist.castling(0);
+        for (int i = 0; i < count; i++) {
+            set(piecesToPlace[i], squaresToUse[i]);
+        }
+        if (side == BLACK) key ^= Zobrist.side();
+
+        ply = 0;
+        sideToMove = side;
+        castlingRights = 0;
+        enPassantSquare = -1;
+        halfMoveClock = 0;
+        fullMoveNumber = 1;
+        refreshAttackMaps();
+    }
+
+
+
+    public String toFen() {
+        StringBuilder fen = new StringBuilder();
+
+        for (int row = 0; row < 8; row++) {
+            int emptyCount = 0;
+            for (int col = 0; col < 8; col++) {
+                int piece = squares[Bitboards.square(row, col)];
+                if (piece == NONE) {
+                    emptyCount++;
+                } else {
+                    if (emptyCount > 0) {
+                        fen.append(emptyCount);
+                        emptyCount = 0;
+                    }
+                    fen.append(Pieces.toChar(piece));
+                }
+            }
+            if (emptyCount > 0) fen.append(emptyCount);
+            if (row < 7) fen.append('/');
+        }
+
+        fen.append(sideToMove == WHITE ? " w " : " b ");
+
+        if (castlingRights == 0) fen.append('-');
+        if ((castlingRights & WHITE_KINGSIDE) != 0) fen.append('K');
+        if ((castlingRights & WHITE_QUEENSIDE) != 0) fen.append('Q');
+        if ((castlingRights & BLACK_KINGSIDE) != 0) fen.append('k');
+        if ((castlingRights & BLACK_QUEENSIDE) != 0) fen.append('q');
+
+        fen.append(' ').append(enPassantSquare < 0 ? "-" : Bitboards.squareName(enPassantSquare));
+        fen.append(' ').append(halfMoveClock);
+        fen.append(' ').append(fullMoveNumber);
+
+        return fen.toString();
+    }
+
+
+
+    public void putPiece(int piece, int square) {
+        set(piece, square);
+        refreshAttackMaps();
+    }
+
+
+
+    public int removePiece(int square) {
+        int piece = clear(square);
+        refreshAttackMaps();
+        return piece;
+    }
+
+
+
+    public void movePiece(int from, int to) {
+        move(from, to);
+        refreshAttackMaps();
+    }
+
+
+
+    private void set(int piece, int square) {
+        int color = Pieces.color(piece);
+        long b = Bitboards.bit(square);
+        pieces[piece] |= b;
+        occupancy[color] |= b;
+        squares[square] = piece;
+        key ^= Zobrist.piece(piece, square);
+
+        listIndex[square] = pieceCount[color];
+        pieceList[color][pieceCount[color]++] = square;
+        if (Pieces.type(piece) == KING) kingSquares[color] = square;
+
+        updateAttacks(square);
+    }
+
+
+
+    private int clear(int square) {
+        int piece = squares[square];
+        if (piece != NONE) {
+            int color = Pieces.color(piece);
+            long b = Bitboards.bit(square);
+            pieces[piece] &= ~b;
+            occupancy[color] &= ~b;
+            squares[square] = NONE;
+            key ^= Zobrist.piece(piece, square);
+
+            // Fill the hole with the last piece of the list
+            int last = pieceList[color][--pieceCount[color]];
+            pieceList[color][listIndex[square]] = last;
+            listIndex[last] = listIndex[square];
+            if (Pieces.type(piece) == KING) kingSquares[color] = -1;
+
+            updateAttacks(square);
+        }
+        return piece;
+    }
+
+
+
+    private void move(int from, int to) {
+        clear(to);
+        int piece = clear(from);
+        if (piece != NONE) set(piece, to);
+    }
+
+
+
+    /**
+     * Incremental attack update after the content of {@code square} changed: only the piece on the square
+     * and the sliders whose rays reach it can see a different set of squares.
+     */
+    private void updateAttacks(int square) {
+        long occupied = occupied();
+        int piece = squares[square];
+        attacksFrom[square] = piece == NONE ? 0L : attacksOf(piece, square, occupied);
+
+        long queens = pieces[WHITE_QUEEN] | pieces[BLACK_QUEEN];
+        long sliders = (Attacks.bishopAttacks(square, occupied) & (pieces[WHITE_BISHOP] | pieces[BLACK_BISHOP] | queens))
+                | (Attacks.rookAttacks(square, occupied) & (pieces[WHITE_ROOK] | pieces[BLACK_ROOK] | queens));
+
+        for (; sliders != 0; sliders &= sliders - 1) {
+            int slider = Bitboards.first(sliders);
+            attacksFrom[slider] = attacksOf(squares[slider], slider, occupied);
+        }
+    }
+
+
+
+    private static long attacksOf(int piece, int square, long occupied) {
+        return switch (Pieces.type(piece)) {
+            case PAWN -> Attacks.pawnAttacks(Pieces.color(piece), square);
+            case KNIGHT -> Attacks.knightAttacks(square);
+            case BISHOP -> Attacks.bishopAttacks(square, occupied);
+            case ROOK -> Attacks.rookAttacks(square, occupied);
+            case QUEEN -> Attacks.queenAttacks(square, occupied);
+            default -> Attacks.kingAttacks(square);
+        };
+    }
+
+
+
+    /**
+     * Rebuilds the per-color maps from the per-piece attack sets, once per position change.
+     */
+    private void refreshAttackMaps() {
+        for (int color = WHITE; color <= BLACK; color++) {
+            long attacked = 0L;
+            int[] list = pieceList[color];
+            for (int i = 0; i < pieceCount[color]; i++) {
+                attacked |= attacksFrom[list[i]];
+            }
+            attackedBy[color] = attacked;
+        }
+    }
+
+
+
+    /**
+     * @return every square attacked by {@code color} in the current position, an O(1) read
+     */
+    public long attackedBy(int color) {
+        return attackedBy[color];
+    }
+
+
+
+    /**
+     * Drops the castling rights lost by a move touching a king or rook home square.
+     */
+    public void updateCastlingRights(int from, int to) {
+        key ^= Zobrist.castling(castlingRights);
+        castlingRights &= CASTLING_MASKS[from] & CASTLING_MASKS[to];
+        key ^= Zobrist.castling(castlingRights);
+    }
+
+
+
+    public int pieceAt(int square) {
+        return squares[square];
+    }
+
+
+
+    public long occupied() {
+        return occupancy[WHITE] | occupancy[BLACK];
+    }
+
+
+
+    public long pieces(int color, int type) {
+        return pieces[Pieces.make(color, type)];
+    }
+
+
+
+    /**
+     * @return the cached king square, -1 if that side has no king
+     */
+    public int kingSquare(int color) {
+        return kingSquares[color];
+    }
+
+
+
+    public int pieceCount(int color) {
+        return pieceCount[color];
+    }
+
+
+
+    /**
+     * @return the square of the {@code index}-th piece of {@code color}, for {@code index < pieceCount(color)}
+     */
+    public int pieceSquare(int color, int index) {
+        return pieceList[color][index];
+    }
+
+
+
+    public boolean isSquareAttacked(int square, int byColor) {
+        return Bitboards.contains(attackedBy[byColor], square);
+    }
+
+
+
+    /**
+     * Attack test against a hypothetical occupancy, used to answer "would this square be attacked after the move"
+     * without touching the position.
+     * @param occupied the occupancy to trace sliding rays through
+     * @param removed squares whose pieces must not count as attackers (ex: a piece captured by the move)
+     */
+    public boolean isSquareAttacked(int square, int byColor, long occupied, long removed) {
+        long queens = pieces(byColor, QUEEN);
+
+        return (Attacks.pawnAttacks(byColor ^ 1, square) & pieces(byColor, PAWN) & ~removed) != 0
+                || (Attacks.knightAttacks(square) & pieces(byColor, KNIGHT) & ~removed) != 0
+                || (Attacks.kingAttacks(square) & pieces(byColor, KING)) != 0
+                || (Attacks.bishopAttacks(square, occupied) & (pieces(byColor, BISHOP) | queens) & ~removed) != 0
+                || (Attacks.rookAttacks(square, occupied) & (pieces(byColor, ROOK) | queens) & ~removed) != 0;
+    }
+
+
+
+    /**
+     * @return every piece, of both colors, attacking the square given the occupancy
+     */
+    public long attackersTo(int square, long occupied) {
+        return (Attacks.pawnAttacks(BLACK, square) & pieces[WHITE_PAWN])
+                | (Attacks.pawnAttacks(WHITE, square) & pieces[BLACK_PAWN])
+                | (Attacks.knightAttacks(square) & (pieces[WHITE_KNIGHT] | pieces[BLACK_KNIGHT]))
+                | (Attacks.kingAttacks(square) & (pieces[WHITE_KING] | pieces[BLACK_KING]))
+                | (Attacks.bishopAttacks(square, occupied) & (pieces[WHITE_BISHOP] | pieces[BLACK_BISHOP] | pieces[WHITE_QUEEN] | pieces[BLACK_QUEEN]))
+                | (Attacks.rookAttacks(square, occupied) & (pieces[WHITE_ROOK] | pieces[BLACK_ROOK] | pieces[WHITE_QUEEN] | pieces[BLACK_QUEEN]));
+    }
+
+
+
+    /**
+     * @return the enemy pieces giving check to the king of {@code color}
+     */
+    public long checkers(int color) {
+        int king = kingSquare(color);
+        return king < 0 ? 0L : attackersTo(king, occupied()) & occupancy[color ^ 1];
+    }
+
+
+
+    /**
+     * Pieces of {@code color} that are the only blocker between their king and an enemy slider,
+     * they may only move along that line.
+     */
+    public long pinnedPieces(int color) {
+        int king = kingSquare(color);
+        if (king < 0) return 0L;
+
+        int them = color ^ 1;
+        long queens = pieces(them, QUEEN);
+        long snipers = (Attacks.rookAttacks(king, 0L) & (pieces(them, ROOK) | queens))
+                | (Attacks.bishopAttacks(king, 0L) & (pieces(them, BISHOP) | queens));
+        long occupied = occupied();
+        long pinned = 0L;
+
+        for (; snipers != 0; snipers &= snipers - 1) {
+            long blockers = Attacks.between(king, Bitboards.first(snipers)) & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) {
+                pinned |= blockers & occupancy[color];
+            }
+        }
+
+        return pinned;
+    }
+
+
+
+    public boolean isInCheck(int color) {
+        int king = kingSquare(color);
+        return king >= 0 && isSquareAttacked(king, color ^ 1);
+    }
+
+
+
+    /**
+     * Plays a legal move: moves the piece, handles captures, en passant, castling and promotion,
+     * then updates castling rights, en passant square, clocks and side to move.
+     * What cannot be recomputed is pushed on the undo stack so {@link #unmakeMove()} can restore it.
+     */
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = squares[from];
+        int us = Pieces.color(piece);
+        int type = Pieces.type(piece);
+        int captured = squares[to];
+
+        pushUndo(move, captured);
+
+        if (Move.isEnPassant(move)) {
+            captured = clear(to - (us == WHITE ? 8 : -8));
+        }
+
+        move(from, to);
+
+        if (Move.isPromotion(move)) {
+            clear(to);
+            set(Pieces.make(us, Move.promotion(move)), to);
+        }
+
+        if (Move.isCastling(move)) {
+            // The rook jumps over the king
+            if (to > from) move(from + 3, from + 1);
+            else move(from - 4, from - 1);
+        }
+
+        refreshAttackMaps();
+
+        key ^= Zobrist.enPassant(enPassantSquare);
+        updateCastlingRights(from, to);
+
+        // Only record an en passant square when an enemy pawn can actually take
+        enPassantSquare = -1;
+        if (type == PAWN && Math.abs(to - from) == 16) {
+            int passed = (from + to) / 2;
+            if ((Attacks.pawnAttacks(us, passed) & pieces(us ^ 1, PAWN)) != 0) enPassantSquare = passed;
+        }
+        key ^= Zobrist.enPassant(enPassantSquare) ^ Zobrist.side();
+
+        halfMoveClock = (type == PAWN || captured != NONE) ? 0 : halfMoveClock + 1;
+        if (us == BLACK) fullMoveNumber++;
+        sideToMove = us ^ 1;
+    }
+
+
+
+    /**
+     * Takes back the last move played with {@link #makeMove(int)}.
+     */
+    public void unmakeMove() {
+        ply--;
+        int move = undoMoves[ply];
+        int state = undoStates[ply];
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int us = sideToMove ^ 1;
+
+        sideToMove = us;
+        if (us == BLACK) fullMoveNumber--;
+        castlingRights = (state >>> 4) & 0xF;
+        enPassantSquare = ((state >>> 8) & 0x7F) - 1;
+        halfMoveClock = state >>> 15;
+
+        int piece = clear(to);
+        if (Move.isPromotion(move)) piece = Pieces.make(us, PAWN);
+        set(piece, from);
+
+        if (Move.isCastling(move)) {
+            if (to > from) move(from + 1, from + 3);
+            else move(from - 1, from - 4);
+        }
+
+        int captured = (state & 0xF) - 1;
+        if (captured != NONE) {
+            set(captured, to);
+        } else if (Move.isEnPassant(move)) {
+            set(Pieces.make(us ^ 1, PAWN), to - (us == WHITE ? 8 : -8));
+        }
+
+        // Pieces were XORed back on the way, the stored key also restores side, castling and en passant
+        key = undoKeys[ply];
+
+        refreshAttackMaps();
+    }
+
+
+
+    /**
+     * Looks for earlier occurrences of the current key, only back to the last capture or pawn move since nothing
+     * before it can repeat, and only on plies with the same side to move.
+     * @return true once the position has appeared {@code times} times, the current one included
+     */
+    public boolean isRepetition(int times) {
+        int found = 1;
+        int stop = Math.max(0, ply - halfMoveClock);
+        for (int i = ply - 2; i >= stop; i -= 2) {
+            if (undoKeys[i] == key && ++found >= times) return true;
+        }
+        return false;
+    }
+
+
+
+    public boolean isFiftyMoveDraw() {
+        return halfMoveClock >= 100;
+    }
+
+
+
+    /**
+     * Neither side can ever mate: bare kings, a single minor piece, or only bishops all standing on one square color.
+     */
+    public boolean hasInsufficientMaterial() {
+        long heavy = pieces[WHITE_PAWN] | pieces[BLACK_PAWN] | pieces[WHITE_ROOK] | pieces[BLACK_ROOK]
+                | pieces[WHITE_QUEEN] | pieces[BLACK_QUEEN];
+        if (heavy != 0) return false;
+
+        long knights = pieces[WHITE_KNIGHT] | pieces[BLACK_KNIGHT];
+        long bishops = pieces[WHITE_BISHOP] | pieces[BLACK_BISHOP];
+        int minors = Long.bitCount(knights | bishops);
+        if (minors <= 1) return true;
+
+        return knights == 0 && ((bishops & Bitboards.DARK_SQUARES) == 0 || (bishops & ~Bitboards.DARK_SQUARES) == 0);
+    }
+
+
+
+    /**
+     * @return true when the game is drawn by threefold repetition, the fifty-move rule or insufficient material
+     */
+    public boolean isDraw() {
+        return isFiftyMoveDraw() || hasInsufficientMaterial() || isRepetition(3);
+    }
+
+
+
+    public int lastMove() {
+        return ply == 0 ? Move.NONE : undoMoves[ply - 1];
+    }
+
+
+
+    private void pushUndo(int move, int captured) {
+        if (ply == undoMoves.length) {
+            undoMoves = Arrays.copyOf(undoMoves, ply * 2);
+            undoStates = Arrays.copyOf(undoStates, ply * 2);
+            undoKeys = Arrays.copyOf(undoKeys, ply * 2);
+        }
+
+        // Captured piece, castling rights, en passant square and half-move clock packed in one int
+        undoMoves[ply] = move;
+        undoStates[ply] = (captured + 1) | (castlingRights << 4) | ((enPassantSquare + 1) << 8) | (halfMoveClock << 15);
+        undoKeys[ply] = key;
+        ply++;
+    }
+}
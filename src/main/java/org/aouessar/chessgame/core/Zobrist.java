@@ -0,0 +1,66 @@
+package org.aouessar.chessgame.core;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random 64-bit keys XORed together to identify a position: one per piece and square, one for black to move,
+ * one per castling rights combination and one per en passant file. The seed is fixed so keys are stable across runs.
+ */
+public final class Zobrist {
+
+    private static final long[][] PIECES = new long[12][64];
+
+    private static final long[] CASTLING = new long[16];
+
+    private static final long[] EN_PASSANT = new long[8];
+
+    private static final long SIDE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x9E3779B97F4A7C15L);
+        for (long[] squares : PIECES) {
+            for (int square = 0; square < 64; square++) {
+                squares[square] = random.nextLong();
+            }
+        }
+        for (int rights = 0; rights < 16; rights++) {
+            CASTLING[rights] = random.nextLong();
+        }
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT[file] = random.nextLong();
+        }
+        SIDE = random.nextLong();
+    }
+
+
+
+    private Zobrist() {
+    }
+
+
+
+    public static long piece(int piece, int square) {
+        return PIECES[piece][square];
+    }
+
+
+
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+
+
+    /**
+     * @return the key of an en passant square, 0 when there is none
+     */
+    public static long enPassant(int square) {
+        return square < 0 ? 0L : EN_PASSANT[Bitboards.col(square)];
+    }
+
+
+
+    public static long side() {
+        return SIDE;
+    }
+}
@@ -0,0 +1,19 @@
+package org.aouessar.chessgame.domain;
+
+public enum GameStatus {
+    ONGOING,
+
+    CHECK,
+
+    CHECKMATE,
+
+    STALEMATE,
+
+    DRAW;
+
+
+
+    public boolean isOver() {
+        return this == CHECKMATE || this == STALEMATE || this == DRAW;
+    }
+}
@@ -1,46 +1,52 @@
 package org.aouessar.chessgame.piece;
 
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
 import lombok.Getter;
-import lombok.Setter;
+import org.aouessar.chessgame.core.Bitboards;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
 import org.aouessar.chessgame.domain.Color;
 
+/**
+ * Immutable move rules of one kind of piece in one color. There are only twelve instances, shared by every game
+ * through {@link org.aouessar.chessgame.piece.factory.PieceFactory}: where a piece stands lives in the position,
+ * how it is drawn lives in the UI.
+ */
 @Getter
-@Setter
 public abstract class Piece {
 
+    private static final String[] TYPE_NAMES = {"Pawn", "Knight", "Bishop", "Rook", "Queen", "King"};
+
     private final char name;
 
     private final Color color;
 
-    private final ImageView icon;
-
-    private int row;
+    // Piece code of core.Pieces, color * 6 + type
+    private final int code;
 
-    private int col;
+    // Built once for the board messages, ex: "Rook" and "WHITE Rook"
+    private final String typeName;
 
-    protected boolean hasMoved;
+    private final String label;
 
 
 
 
-    public Piece(char name, Color color, int row, int col, Image icon) {
-        this.name = name;
+    protected Piece(Color color, int type) {
         this.color = color;
-        this.row = row;
-        this.col = col;
-        this.icon = new ImageView(icon);
+        this.code = Pieces.make(color == Color.WHITE ? Pieces.WHITE : Pieces.BLACK, type);
+        this.name = Pieces.toChar(code);
+        this.typeName = TYPE_NAMES[type];
+        this.label = color.name() + " " + typeName;
     }
 
 
     // Abstract method to check if a move is valid
-    public abstract boolean isValidMove(int startX, int startY, int endX, int endY, Piece[][] board);
+    public abstract boolean isValidMove(int startX, int startY, int endX, int endY, Position position);
 
 
     // Check if the destination is occupied by a friendly piece
-    public boolean isFriendlyPiece(int row, int col, Piece[][] board) {
-        return board[row][col] != null && color.name().equals(board[row][col].getColor().name());
+    public boolean isFriendlyPiece(int row, int col, Position position) {
+        return Bitboards.contains(position.getOccupancy()[Pieces.color(code)], Bitboards.square(row, col));
     }
 
 
@@ -50,9 +56,4 @@ public abstract class Piece {
     public boolean isWhite() {
         return getColor().equals(Color.WHITE);
     }
-
-
-    public boolean hasMoved() {
-        return hasMoved;
-    }
-}
\ No newline at end of file
+}
@@ -1,36 +1,29 @@
 package org.aouessar.chessgame.piece.factory;
 
-import javafx.scene.image.Image;
+import org.aouessar.chessgame.core.Attacks;
+import org.aouessar.chessgame.core.Bitboards;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
 import org.aouessar.chessgame.domain.Color;
 import org.aouessar.chessgame.piece.Piece;
 
 public class Bishop extends Piece {
 
 
-    public Bishop(char name, Color color, int row, int col, Image icon) {
-        super(name, color, row, col, icon);
+    public Bishop(Color color) {
+        super(color, Pieces.BISHOP);
     }
 
     @Override
-    public boolean isValidMove(int startX, int startY, int endX, int endY, Piece[][] board) {
-        int dx = Math.abs(endX - startX);
-        int dy = Math.abs(endY - startY);
+    public boolean isValidMove(int startX, int startY, int endX, int endY, Position position) {
+        // Diagonals seen from the start square, obstacles included, in one lookup
+        long attacks = Attacks.bishopAttacks(Bitboards.square(startX, startY), position.occupied());
 
-        if (dx != dy) {
-            return false; // Must move diagonally
+        if (!Bitboards.contains(attacks, Bitboards.square(endX, endY))) {
+            return false;
         }
 
-        // Check for obstacles along the path
-        int stepX = Integer.signum(endX - startX);
-        int stepY = Integer.signum(endY - startY);
-
-        for (int x = startX + stepX, y = startY + stepY; x != endX; x += stepX, y += stepY) {
-            if (board[x][y] != null) {
-                return false;
-            }
-        }
-
-        return !isFriendlyPiece(endX, endY, board);
+        return !isFriendlyPiece(endX, endY, position);
     }
 
     @Override
@@ -1,23 +1,23 @@
 package org.aouessar.chessgame.piece.factory;
 
-import javafx.scene.image.Image;
+import org.aouessar.chessgame.core.Attacks;
+import org.aouessar.chessgame.core.Bitboards;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
 import org.aouessar.chessgame.domain.Color;
 import org.aouessar.chessgame.piece.Piece;
 
 public class Knight extends Piece {
 
-    public Knight(char name, Color color, int row, int col, Image icon) {
-        super(name, color, row, col, icon);
+    public Knight(Color color) {
+        super(color, Pieces.KNIGHT);
     }
 
     @Override
-    public boolean isValidMove(int startX, int startY, int endX, int endY, Piece[][] board) {
-        int dx = Math.abs(endX - startX);
-        int dy = Math.abs(endY - startY);
-
+    public boolean isValidMove(int startX, int startY, int endX, int endY, Position position) {
         // Check for L-shape movement
-        if (dx * dy == 2) {
-            return !isFriendlyPiece(endX, endY, board);
+        if (Bitboards.contains(Attacks.knightAttacks(Bitboards.square(startX, startY)), Bitboards.square(endX, endY))) {
+            return !isFriendlyPiece(endX, endY, position);
         }
 
         return false;
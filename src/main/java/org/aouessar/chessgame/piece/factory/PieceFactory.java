@@ -0,0 +1,38 @@
+package org.aouessar.chessgame.piece.factory;
+
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.domain.Color;
+import org.aouessar.chessgame.piece.Piece;
+
+/**
+ * Hands out the shared piece instances, indexed by their core piece code.
+ */
+public final class PieceFactory {
+
+    private static final Piece[] PIECES = {
+            new Pawn(Color.WHITE), new Knight(Color.WHITE), new Bishop(Color.WHITE),
+            new Rook(Color.WHITE), new Queen(Color.WHITE), new King(Color.WHITE),
+            new Pawn(Color.BLACK), new Knight(Color.BLACK), new Bishop(Color.BLACK),
+            new Rook(Color.BLACK), new Queen(Color.BLACK), new King(Color.BLACK)
+    };
+
+
+
+    private PieceFactory() {
+    }
+
+
+
+    /**
+     * @return the piece for a code of {@link Pieces}, null for {@link Pieces#NONE}
+     */
+    public static Piece of(int piece) {
+        return piece == Pieces.NONE ? null : PIECES[piece];
+    }
+
+
+
+    public static Piece fromChar(char ch) {
+        return of(Pieces.fromChar(ch));
+    }
+}
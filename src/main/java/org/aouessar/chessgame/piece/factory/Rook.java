@@ -1,54 +1,31 @@
 package org.aouessar.chessgame.piece.factory;
 
-import javafx.scene.image.Image;
-import lombok.Getter;
-import lombok.Setter;
+import org.aouessar.chessgame.core.Attacks;
+import org.aouessar.chessgame.core.Bitboards;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
 import org.aouessar.chessgame.domain.Color;
 import org.aouessar.chessgame.piece.Piece;
 
-@Setter
-@Getter
 public class Rook extends Piece {
 
-    private boolean hasMoved;
-
-
-
-    public Rook(char name, Color color, int row, int col, Image icon) {
-        super(name, color, row, col, icon);
+    public Rook(Color color) {
+        super(color, Pieces.ROOK);
     }
 
 
 
     @Override
-    public boolean isValidMove(int startX, int startY, int endX, int endY, Piece[][] board) {
-        if (startX != endX && startY != endY) {
-            return false; // Must move in a straight line
-        }
-
-        // Determine the direction of movement and check for obstacles
-        int stepX = Integer.signum(endX - startX); // -1, 0, or 1
-        int stepY = Integer.signum(endY - startY); // -1, 0, or 1
+    public boolean isValidMove(int startX, int startY, int endX, int endY, Position position) {
+        // Rank and file seen from the start square, obstacles included, in one lookup
+        long attacks = Attacks.rookAttacks(Bitboards.square(startX, startY), position.occupied());
 
-        int currentX = startX + stepX;
-        int currentY = startY + stepY;
-
-        while (currentX != endX || currentY != endY) {
-            if (board[currentX][currentY] != null) {
-                return false; // Path is blocked
-            }
-            currentX += stepX;
-            currentY += stepY;
+        if (!Bitboards.contains(attacks, Bitboards.square(endX, endY))) {
+            return false; // Not on a straight line or path is blocked
         }
 
         // Ensure the destination square is not occupied by a friendly piece
-        return !isFriendlyPiece(endX, endY, board);
-    }
-
-
-
-    public boolean hasMoved() {
-        return hasMoved;
+        return !isFriendlyPiece(endX, endY, position);
     }
 
 
@@ -0,0 +1,96 @@
+package org.aouessar.chessgame.tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only file mapped in 1 GB chunks, since one mapping cannot exceed 2 GB.
+ * Chunks overlap by a few bytes so a read of up to 8 bytes never straddles two of them.
+ * Reads are absolute, so the file can be shared by any number of threads.
+ */
+final class MappedFile {
+
+    private static final int CHUNK_SHIFT = 30;
+
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private static final int OVERLAP = 8;
+
+    private final ByteBuffer[] chunks;
+
+    private final long size;
+
+
+
+    private MappedFile(ByteBuffer[] chunks, long size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+
+
+    static MappedFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer[] chunks = new ByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = (long) i << CHUNK_SHIFT;
+                long length = Math.min(size - start, (1L << CHUNK_SHIFT) + OVERLAP);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new MappedFile(chunks, size);
+        }
+    }
+
+
+
+    long size() {
+        return size;
+    }
+
+
+
+    int u8(long offset) {
+        return chunk(offset).get(index(offset)) & 0xFF;
+    }
+
+
+
+    int u16(long offset) {
+        return chunk(offset).getShort(index(offset)) & 0xFFFF;
+    }
+
+
+
+    long u32(long offset) {
+        return chunk(offset).getInt(index(offset)) & 0xFFFFFFFFL;
+    }
+
+
+
+    long u32BigEndian(long offset) {
+        return Integer.reverseBytes(chunk(offset).getInt(index(offset))) & 0xFFFFFFFFL;
+    }
+
+
+
+    long u64BigEndian(long offset) {
+        return Long.reverseBytes(chunk(offset).getLong(index(offset)));
+    }
+
+
+
+    private ByteBuffer chunk(long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)];
+    }
+
+
+
+    private static int index(long offset) {
+        return (int) (offset & CHUNK_MASK);
+    }
+}
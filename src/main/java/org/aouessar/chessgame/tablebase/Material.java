@@ -0,0 +1,282 @@
+package org.aouessar.chessgame.tablebase;
+
+import org.aouessar.chessgame.core.Bitboards;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.aouessar.chessgame.core.Pieces.*;
+
+/**
+ * The pieces of one endgame table, named like {@code KQvKR}, and the mapping of its positions to table indexes.
+ * <p>
+ * Tables are stored with the stronger side as white. A position where black is the stronger side is probed
+ * with colors swapped and the board flipped vertically, and since none of the table positions can castle the
+ * white king is also mirrored onto files a to d, halving the table.
+ * <p>
+ * Index layout, low bits first: the side to move (1 bit), the white king on its 32 squares (5 bits),
+ * then 6 bits for the black king and for each other piece. Identical pieces are kept in increasing square order,
+ * the other orderings are never used.
+ */
+public final class Material {
+
+    public static final int MAX_PIECES = 4;
+
+    private static final String TYPES = "PNBRQK";
+
+    // Strongest first, the order of pieces inside a name
+    private static final String ORDER = "QRBNP";
+
+    private final String name;
+
+    // Piece codes by index slot: white king, black king, then white and black pieces strongest first
+    private final int[] pieces;
+
+    private final int size;
+
+
+
+    private Material(String white, String black) {
+        this.name = "K" + white + "vK" + black;
+        this.pieces = new int[2 + white.length() + black.length()];
+        pieces[0] = WHITE_KING;
+        pieces[1] = BLACK_KING;
+        for (int i = 0; i < white.length(); i++) {
+            pieces[2 + i] = Pieces.make(WHITE, TYPES.indexOf(white.charAt(i)));
+        }
+        for (int i = 0; i < black.length(); i++) {
+            pieces[2 + white.length() + i] = Pieces.make(BLACK, TYPES.indexOf(black.charAt(i)));
+        }
+        this.size = 1 << (6 * pieces.length);
+    }
+
+
+
+    /**
+     * @param name like {@code KRvKN}, the sides may be in any order, {@code KvKQ} is the same table as {@code KQvK}
+     */
+    public static Material parse(String name) {
+        String[] sides = name.toUpperCase().split("V");
+        if (sides.length != 2 || !sides[0].startsWith("K") || !sides[1].startsWith("K")) {
+            throw new IllegalArgumentException("Material must look like KQvK: " + name);
+        }
+        String white = sorted(sides[0].substring(1));
+        String black = sorted(sides[1].substring(1));
+        if (white.length() + black.length() + 2 > MAX_PIECES) {
+            throw new IllegalArgumentException("Tables have at most " + MAX_PIECES + " pieces: " + name);
+        }
+        for (char ch : (white + black).toCharArray()) {
+            if (ORDER.indexOf(ch) < 0) throw new IllegalArgumentException("Unknown piece '" + ch + "' in " + name);
+        }
+        return stronger(black, white) ? new Material(black, white) : new Material(white, black);
+    }
+
+
+
+    /**
+     * @return the table of the position's pieces, null with more than {@link #MAX_PIECES} pieces
+     */
+    public static Material of(Position position) {
+        if (position.pieceCount(WHITE) + position.pieceCount(BLACK) > MAX_PIECES) return null;
+        String white = side(position, WHITE);
+        String black = side(position, BLACK);
+        return stronger(black, white) ? new Material(black, white) : new Material(white, black);
+    }
+
+
+
+    /**
+     * Tables this one resolves into: one piece captured, or a pawn promoted, with and without a capture.
+     * Tables of two kings with at most a minor piece are left out, they are draws.
+     */
+    public List<Material> successors() {
+        List<String> names = new ArrayList<>();
+        String white = name.substring(1, name.indexOf('v'));
+        String black = name.substring(name.indexOf('v') + 2);
+        for (int i = 0; i < black.length(); i++) {
+            names.add("K" + white + "vK" + remove(black, i));
+        }
+        for (int i = 0; i < white.length(); i++) {
+            names.add("K" + remove(white, i) + "vK" + black);
+        }
+        for (String promoted : List.of("Q", "R", "B", "N")) {
+            if (white.contains("P")) {
+                String next = remove(white, white.indexOf('P')) + promoted;
+                names.add("K" + next + "vK" + black);
+                for (int i = 0; i < black.length(); i++) {
+                    names.add("K" + next + "vK" + remove(black, i));
+                }
+            }
+            if (black.contains("P")) {
+                String next = remove(black, black.indexOf('P')) + promoted;
+                names.add("K" + white + "vK" + next);
+                for (int i = 0; i < white.length(); i++) {
+                    names.add("K" + remove(white, i) + "vK" + next);
+                }
+            }
+        }
+        return names.stream().map(Material::parse).filter(material -> !material.isTrivialDraw()).distinct().toList();
+    }
+
+
+
+    /**
+     * Kings alone or with a single minor piece, no table is needed to know it is a draw.
+     */
+    public boolean isTrivialDraw() {
+        return pieces.length == 2 || pieces.length == 3 && (name.contains("B") || name.contains("N"));
+    }
+
+
+
+    /**
+     * @param scratch at least {@link #MAX_PIECES} long, receives the normalized squares
+     * @return the table index of the position, or -1 when it is not a table position: other pieces or castling rights.
+     * An en passant square is ignored, {@link Tablebase} resolves the capture on top of the entry
+     */
+    public int index(Position position, int[] scratch) {
+        if (position.getCastlingRights() != 0) return -1;
+        if (position.pieceCount(WHITE) + position.pieceCount(BLACK) != pieces.length) return -1;
+
+        // Colors are swapped when black holds the table's white pieces
+        boolean flip = !side(position, WHITE).equals(name.substring(1, name.indexOf('v')));
+        long used = 0L;
+        for (int slot = 0; slot < pieces.length; slot++) {
+            int color = Pieces.color(pieces[slot]) ^ (flip ? 1 : 0);
+            long candidates = position.pieces(color, Pieces.type(pieces[slot])) & ~used;
+            if (candidates == 0) return -1;
+            int square = Bitboards.first(candidates);
+            used |= Bitboards.bit(square);
+            scratch[slot] = flip ? square ^ 56 : square;
+        }
+        return encode(flip ? position.getSideToMove() ^ 1 : position.getSideToMove(), scratch);
+    }
+
+
+
+    /**
+     * Normalizes {@code squares} in place, mirrored so the white king is on files a to d
+     * and identical pieces sorted, and packs them.
+     */
+    public int encode(int sideToMove, int[] squares) {
+        if ((squares[0] & 7) >= 4) {
+            for (int slot = 0; slot < pieces.length; slot++) {
+                squares[slot] ^= 7;
+            }
+        }
+        if (pieces.length == 4 && pieces[2] == pieces[3] && squares[2] > squares[3]) {
+            int square = squares[2];
+            squares[2] = squares[3];
+            squares[3] = square;
+        }
+
+        int index = sideToMove | ((squares[0] >>> 3) * 4 + (squares[0] & 7)) << 1;
+        for (int slot = 1; slot < pieces.length; slot++) {
+            index |= squares[slot] << (6 * slot);
+        }
+        return index;
+    }
+
+
+
+    /**
+     * Unpacks an index into {@code squares}.
+     * @return the side to move, or -1 for the orderings of identical pieces that are never used
+     */
+    public int decode(int index, int[] squares) {
+        int king = index >>> 1 & 31;
+        squares[0] = (king >>> 2) * 8 + (king & 3);
+        for (int slot = 1; slot < pieces.length; slot++) {
+            squares[slot] = index >>> (6 * slot) & 63;
+        }
+        if (pieces.length == 4 && pieces[2] == pieces[3] && squares[2] >= squares[3]) return -1;
+        return index & 1;
+    }
+
+
+
+    public String getName() {
+        return name;
+    }
+
+
+
+    public int[] getPieces() {
+        return pieces;
+    }
+
+
+
+    /**
+     * @return the number of table entries
+     */
+    public int getSize() {
+        return size;
+    }
+
+
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Material material && name.equals(material.name);
+    }
+
+
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+
+
+    /**
+     * @return the pieces of one color but the king, strongest first, as in table names
+     */
+    static String side(Position position, int color) {
+        StringBuilder side = new StringBuilder();
+        for (char ch : ORDER.toCharArray()) {
+            long pieces = position.pieces(color, TYPES.indexOf(ch));
+            side.append(String.valueOf(ch).repeat(Long.bitCount(pieces)));
+        }
+        return side.toString();
+    }
+
+
+
+    // More pieces first, then the strongest piece
+    private static boolean stronger(String a, String b) {
+        if (a.length() != b.length()) return a.length() > b.length();
+        for (int i = 0; i < a.length(); i++) {
+            int compare = ORDER.indexOf(a.charAt(i)) - ORDER.indexOf(b.charAt(i));
+            if (compare != 0) return compare < 0;
+        }
+        return false;
+    }
+
+
+
+    private static String sorted(String side) {
+        StringBuilder sorted = new StringBuilder();
+        for (char ch : ORDER.toCharArray()) {
+            side.chars().filter(c -> c == ch).forEach(c -> sorted.append(ch));
+        }
+        if (sorted.length() != side.length()) throw new IllegalArgumentException("Unknown piece in " + side);
+        return sorted.toString();
+    }
+
+
+
+    private static String remove(String side, int i) {
+        return sorted(side.substring(0, i) + side.substring(i + 1));
+    }
+}
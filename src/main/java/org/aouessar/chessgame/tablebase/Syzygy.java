@@ -0,0 +1,316 @@
+/*
+ * Derived from src/syzygy/tbprobe.cpp of Stockfish, a UCI chess playing engine derived from Glaurung 2.1,
+ * based on the Syzygy probing code of Ronald de Man.
+ * Copyright (C) The Stockfish developers (see the AUTHORS file of Stockfish)
+ * Modified: ported to Java for ChessGame.
+ *
+ * This file is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with this file, see licenses/GPL-3.0.txt
+ * or <https://www.gnu.org/licenses/>.
+ */
+package org.aouessar.chessgame.tablebase;
+
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.aouessar.chessgame.tablebase.SyzygyTable.*;
+
+/**
+ * Probes the Syzygy tables found in a directory: win/draw/loss ({@code .rtbw}) and distance to zeroing
+ * ({@code .rtbz}), the number of plies to the next capture or pawn move on the way to the result.
+ * <p>
+ * Files are memory-mapped the first time a position needs them, and any number of threads can probe at once.
+ * Positions with castling rights are never probed.
+ * <p>
+ * Tables do not store every value: a position with a winning capture may hold anything, since the capture is found
+ * by probing it, so every probe first tries the captures, as the tables' generator assumes.
+ */
+public class Syzygy {
+
+    public static final int LOSS = -2;
+
+    // Lost, but saved by the fifty-move rule
+    public static final int BLESSED_LOSS = -1;
+
+    public static final int DRAW = 0;
+
+    // Won, but not within the fifty-move rule
+    public static final int CURSED_WIN = 1;
+
+    public static final int WIN = 2;
+
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    // Above any distance to zeroing
+    private static final int MAX_RANK = 1 << 18;
+
+    private final Path directory;
+
+    // By file name without extension, like KQvKR: the WDL table, then the DTZ table or null
+    private final Map<String, SyzygyTable[]> tables = new HashMap<>();
+
+    private final int maxPieces;
+
+
+
+    /**
+     * Lists the tables of the directory, no file is read yet.
+     */
+    public Syzygy(Path directory) throws IOException {
+        this.directory = directory;
+        int largest = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(".rtbw") || !name.matches("K[QRBNP]*vK[QRBNP]*\\.rtbw")) continue;
+
+                String code = name.substring(0, name.length() - 5);
+                String white = code.substring(1, code.indexOf('v'));
+                String black = code.substring(code.indexOf('v') + 2);
+                Path dtz = directory.resolve(code + ".rtbz");
+                tables.put(code, new SyzygyTable[] {
+                        new SyzygyTable(file, WDL, white, black),
+                        Files.exists(dtz) ? new SyzygyTable(dtz, DTZ, white, black) : null});
+                largest = Math.max(largest, 2 + white.length() + black.length());
+            }
+        }
+        this.maxPieces = largest;
+    }
+
+
+
+    /**
+     * @return {@link #LOSS} to {@link #WIN} for the side to move, or {@link #NOT_FOUND}
+     */
+    public int probeWdl(Position position) {
+        if (!isProbeable(position)) return NOT_FOUND;
+        int[] state = {OK};
+        int wdl = search(position.copy(), false, state);
+        return state[0] == FAIL ? NOT_FOUND : wdl;
+    }
+
+
+
+    /**
+     * @return plies to the next capture or pawn move for the side to move: positive when winning, negative when
+     * losing, beyond 100 when the fifty-move rule saves the loser, 0 for a draw, or {@link #NOT_FOUND}.
+     * The value may be one ply too long
+     */
+    public int probeDtz(Position position) {
+        if (!isProbeable(position)) return NOT_FOUND;
+        int[] state = {OK};
+        int dtz = dtz(position.copy(), state);
+        return state[0] == FAIL ? NOT_FOUND : dtz;
+    }
+
+
+
+    /**
+     * Ranks the moves by the result they keep, counting the fifty-move rule from the current half-move clock.
+     * Among the wins the one closest to zeroing is played so the win always progresses, among the losses the
+     * one furthest from it.
+     * @return the move, or {@link Move#NONE} when a table is missing
+     */
+    public int bestMove(Position position) {
+        if (!isProbeable(position)) return Move.NONE;
+
+        Position board = position.copy();
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(board, moves);
+        int clock = board.getHalfMoveClock();
+        int[] state = {OK};
+
+        int bestMove = Move.NONE;
+        int bestRank = Integer.MIN_VALUE;
+        int bestDtz = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            int dtz;
+            if (board.getHalfMoveClock() == 0) {
+                dtz = dtzBeforeZeroing(-search(board, false, state));
+            } else {
+                dtz = -dtz(board, state);
+                dtz += Integer.signum(dtz);
+            }
+            if (dtz == 2 && isMate(board)) dtz = 1;
+            board.unmakeMove();
+            if (state[0] == FAIL) return Move.NONE;
+
+            // Wins within the fifty-move rule rank alike, so do losses the rule cannot save
+            int rank = dtz > 0 ? (dtz + clock <= 99 ? MAX_RANK : MAX_RANK - (dtz + clock))
+                    : dtz < 0 ? (-dtz * 2 + clock < 100 ? -MAX_RANK : -MAX_RANK + (-dtz + clock))
+                    : 0;
+            if (rank > bestRank || rank == bestRank && dtz < bestDtz) {
+                bestRank = rank;
+                bestDtz = dtz;
+                bestMove = moves.get(i);
+            }
+        }
+        return bestMove;
+    }
+
+
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+
+
+    public int getTableCount() {
+        return tables.size();
+    }
+
+
+
+    /**
+     * @return the most pieces of any table found, positions with more are never probed
+     */
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+
+
+    private boolean isProbeable(Position position) {
+        int pieces = position.pieceCount(Pieces.WHITE) + position.pieceCount(Pieces.BLACK);
+        return position.getCastlingRights() == 0 && pieces <= maxPieces;
+    }
+
+
+
+    /**
+     * Tries the captures, and with {@code zeroing} the pawn moves, before the table, whose value for the position
+     * itself may not hold when one of them is best.
+     */
+    private int search(Position position, boolean zeroing, int[] state) {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, moves);
+        int bestValue = LOSS;
+        int searched = 0;
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            boolean capture = position.pieceAt(Move.to(move)) != Pieces.NONE || Move.isEnPassant(move);
+            if (!capture && (!zeroing || Pieces.type(position.pieceAt(Move.from(move))) != Pieces.PAWN)) continue;
+            searched++;
+
+            position.makeMove(move);
+            int value = -search(position, false, state);
+            position.unmakeMove();
+            if (state[0] == FAIL) return DRAW;
+
+            if (value > bestValue) {
+                bestValue = value;
+                if (value >= WIN) {
+                    state[0] = ZEROING_BEST_MOVE;
+                    return value;
+                }
+            }
+        }
+
+        // When every move was searched the table is not needed
+        boolean noMoreMoves = searched > 0 && searched == moves.size();
+        int value;
+        if (noMoreMoves) {
+            value = bestValue;
+        } else {
+            value = probeTable(position, WDL, DRAW, state);
+            if (state[0] == FAIL) return DRAW;
+        }
+
+        if (bestValue >= value) {
+            state[0] = bestValue > DRAW || noMoreMoves ? ZEROING_BEST_MOVE : OK;
+            return bestValue;
+        }
+        state[0] = OK;
+        return value;
+    }
+
+
+
+    private int dtz(Position position, int[] state) {
+        state[0] = OK;
+        int wdl = search(position, true, state);
+        if (state[0] == FAIL || wdl == DRAW) return 0;
+        if (state[0] == ZEROING_BEST_MOVE) return dtzBeforeZeroing(wdl);
+
+        int dtz = probeTable(position, DTZ, wdl, state);
+        if (state[0] == FAIL) return 0;
+        if (state[0] != CHANGE_STM) return (dtz + (wdl == BLESSED_LOSS || wdl == CURSED_WIN ? 100 : 0)) * Integer.signum(wdl);
+
+        // The table only stores the other side to move, one ply of search gives the value
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, moves);
+        int minDtz = 0xFFFF;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            boolean zeroing = position.pieceAt(Move.to(move)) != Pieces.NONE || Move.isEnPassant(move)
+                    || Pieces.type(position.pieceAt(Move.from(move))) == Pieces.PAWN;
+
+            position.makeMove(move);
+            dtz = zeroing ? -dtzBeforeZeroing(search(position, false, state)) : -dtz(position, state);
+            if (dtz == 1 && isMate(position)) minDtz = 1;
+            if (!zeroing) dtz += Integer.signum(dtz);
+            if (dtz < minDtz && Integer.signum(dtz) == Integer.signum(wdl)) minDtz = dtz;
+            position.unmakeMove();
+
+            if (state[0] == FAIL) return 0;
+        }
+        return minDtz == 0xFFFF ? -1 : minDtz;
+    }
+
+
+
+    private int probeTable(Position position, int type, int wdl, int[] state) {
+        if (position.pieceCount(Pieces.WHITE) + position.pieceCount(Pieces.BLACK) == 2) return DRAW;
+
+        String white = Material.side(position, Pieces.WHITE);
+        String black = Material.side(position, Pieces.BLACK);
+        SyzygyTable[] pair = tables.get("K" + white + "vK" + black);
+        if (pair == null) pair = tables.get("K" + black + "vK" + white);
+        if (pair == null || pair[type] == null) {
+            state[0] = FAIL;
+            return 0;
+        }
+        return pair[type].probe(position, wdl, state);
+    }
+
+
+
+    /**
+     * DTZ tables do not store the positions right before a capture or pawn move, their distance follows from the result.
+     */
+    private static int dtzBeforeZeroing(int wdl) {
+        return switch (wdl) {
+            case WIN -> 1;
+            case CURSED_WIN -> 101;
+            case BLESSED_LOSS -> -101;
+            case LOSS -> -1;
+            default -> 0;
+        };
+    }
+
+
+
+    private static boolean isMate(Position position) {
+        return position.isInCheck(position.getSideToMove()) && !MoveGenerator.hasLegalMove(position);
+    }
+}
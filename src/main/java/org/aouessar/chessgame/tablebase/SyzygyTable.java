@@ -0,0 +1,746 @@
+/*
+ * Derived from src/syzygy/tbprobe.cpp of Stockfish, a UCI chess playing engine derived from Glaurung 2.1,
+ * based on the Syzygy probing code of Ronald de Man.
+ * Copyright (C) The Stockfish developers (see the AUTHORS file of Stockfish)
+ * Modified: ported to Java for ChessGame.
+ *
+ * This file is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with this file, see licenses/GPL-3.0.txt
+ * or <https://www.gnu.org/licenses/>.
+ */
+package org.aouessar.chessgame.tablebase;
+
+import org.aouessar.chessgame.core.Attacks;
+import org.aouessar.chessgame.core.Position;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.aouessar.chessgame.core.Pieces.*;
+
+/**
+ * One Syzygy file, {@code .rtbw} (win/draw/loss) or {@code .rtbz} (distance to zeroing), mapped on first use.
+ * <p>
+ * Positions are indexed by groups of pieces: the leading group (three unique pieces, the two kings, or the leading
+ * pawns), then the remaining pawns, then each set of identical pieces, every group placed on the squares left by the
+ * previous ones. Symmetries reduce the leading group: files a to d, and without pawns the a1-d1-d4 triangle.
+ * Values are compressed by recursive pairing, each symbol standing for a pair of symbols, then canonical Huffman coded
+ * in blocks, with a sparse index to find the block of an index.
+ * Pieces in the file use the Syzygy codes: color * 8 + type, pawn = 1 to king = 6.
+ */
+final class SyzygyTable {
+
+    static final int WDL = 0;
+
+    static final int DTZ = 1;
+
+    // Results of a probe next to the value
+    static final int FAIL = 0;
+
+    static final int OK = 1;
+
+    static final int CHANGE_STM = -1;
+
+    static final int ZEROING_BEST_MOVE = 2;
+
+    private static final int[][] MAGICS = {{0x71, 0xE8, 0x23, 0x5D}, {0xD7, 0x66, 0x0C, 0xA5}};
+
+    // Flags of a pairs record
+    private static final int STM = 1;
+
+    private static final int MAPPED = 2;
+
+    private static final int WIN_PLIES = 4;
+
+    private static final int LOSS_PLIES = 8;
+
+    private static final int WIDE = 16;
+
+    private static final int SINGLE_VALUE = 128;
+
+    private static final int[] MAP_PAWNS = new int[64];
+
+    private static final int[] MAP_B1H1H7 = new int[64];
+
+    private static final int[] MAP_A1D1D4 = new int[64];
+
+    private static final int[][] MAP_KK = new int[10][64];
+
+    private static final int[][] BINOMIAL = new int[7][64];
+
+    private static final int[][] LEAD_PAWN_INDEX = new int[7][64];
+
+    private static final int[][] LEAD_PAWNS_SIZE = new int[7][4];
+
+    static {
+        int code = 0;
+        for (int square = 0; square < 64; square++) {
+            if (offDiagonal(square) < 0) MAP_B1H1H7[square] = code++;
+        }
+
+        // Squares of the a1-d1-d4 triangle below the diagonal first, then those on it
+        code = 0;
+        int[] diagonal = new int[4];
+        int onDiagonal = 0;
+        for (int square = 0; square <= 27; square++) {
+            if (offDiagonal(square) < 0 && (square & 7) <= 3) {
+                MAP_A1D1D4[square] = code++;
+            } else if (offDiagonal(square) == 0 && (square & 7) <= 3) {
+                diagonal[onDiagonal++] = square;
+            }
+        }
+        for (int i = 0; i < onDiagonal; i++) {
+            MAP_A1D1D4[diagonal[i]] = code++;
+        }
+
+        // The 462 placements of two kings with the first one in the triangle, those with both on the diagonal last
+        code = 0;
+        int[][] bothOnDiagonal = new int[64][2];
+        int both = 0;
+        for (int index = 0; index < 10; index++) {
+            for (int first = 0; first <= 27; first++) {
+                if (MAP_A1D1D4[first] != index || (index == 0 && first != 1)) continue;
+                for (int second = 0; second < 64; second++) {
+                    if (((Attacks.kingAttacks(first) | 1L << first) & 1L << second) != 0) continue;
+                    if (offDiagonal(first) == 0 && offDiagonal(second) > 0) continue;
+                    if (offDiagonal(first) == 0 && offDiagonal(second) == 0) {
+                        bothOnDiagonal[both][0] = index;
+                        bothOnDiagonal[both++][1] = second;
+                    } else {
+                        MAP_KK[index][second] = code++;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < both; i++) {
+            MAP_KK[bothOnDiagonal[i][0]][bothOnDiagonal[i][1]] = code++;
+        }
+
+        BINOMIAL[0][0] = 1;
+        for (int n = 1; n < 64; n++) {
+            for (int k = 0; k < BINOMIAL.length && k <= n; k++) {
+                BINOMIAL[k][n] = (k > 0 ? BINOMIAL[k - 1][n - 1] : 0) + (k < n ? BINOMIAL[k][n - 1] : 0);
+            }
+        }
+
+        // Pawns closer to the edge and lower lead, a2 = 47 down to d7
+        int available = 47;
+        for (int leadPawns = 1; leadPawns < LEAD_PAWN_INDEX.length; leadPawns++) {
+            for (int file = 0; file < 4; file++) {
+                int index = 0;
+                for (int rank = 1; rank <= 6; rank++) {
+                    int square = rank * 8 + file;
+                    if (leadPawns == 1) {
+                        MAP_PAWNS[square] = available--;
+                        MAP_PAWNS[square ^ 7] = available--;
+                    }
+                    LEAD_PAWN_INDEX[leadPawns][square] = index;
+                    index += BINOMIAL[leadPawns - 1][MAP_PAWNS[square]];
+                }
+                LEAD_PAWNS_SIZE[leadPawns][file] = index;
+            }
+        }
+    }
+
+    private final Path file;
+
+    private final int type;
+
+    // Pieces of the side written first in the file name
+    private final String white;
+
+    private final String black;
+
+    private final boolean symmetric;
+
+    private final int pieceCount;
+
+    private final boolean hasPawns;
+
+    private final boolean hasUniquePieces;
+
+    // Pawns of the leading color, then of the other one
+    private final int[] pawnCount = new int[2];
+
+    private volatile boolean ready;
+
+    private MappedFile data;
+
+    // By side to move, then file of the leading pawn
+    private Pairs[][] pairs;
+
+    // Start of the DTZ value maps
+    private long map;
+
+
+
+    /**
+     * @param white pieces of the first side in the file name, without the king, like {@code "QR"}
+     */
+    SyzygyTable(Path file, int type, String white, String black) {
+        this.file = file;
+        this.type = type;
+        this.white = white;
+        this.black = black;
+        this.symmetric = white.equals(black);
+        this.pieceCount = 2 + white.length() + black.length();
+        this.hasPawns = white.contains("P") || black.contains("P");
+
+        boolean unique = false;
+        for (char ch : "PNBRQ".toCharArray()) {
+            unique |= count(white, ch) == 1 || count(black, ch) == 1;
+        }
+        this.hasUniquePieces = unique;
+
+        // The leading color has the fewest pawns, but at least one
+        int whitePawns = count(white, 'P');
+        int blackPawns = count(black, 'P');
+        boolean whiteLeads = blackPawns == 0 || whitePawns > 0 && blackPawns >= whitePawns;
+        pawnCount[0] = whiteLeads ? whitePawns : blackPawns;
+        pawnCount[1] = whiteLeads ? blackPawns : whitePawns;
+    }
+
+
+
+    /**
+     * Looks the position up, its pieces must be this table's.
+     * @param wdl for DTZ tables, the position's win/draw/loss value, which selects the value map
+     * @param state receives {@link #FAIL} when the file cannot be read, or {@link #CHANGE_STM} when a DTZ table
+     * only stores the other side to move
+     * @return the win/draw/loss value from -2 to 2, or the distance to zeroing in plies
+     */
+    int probe(Position position, int wdl, int[] state) {
+        if (!ready) load();
+        if (data == null) {
+            state[0] = FAIL;
+            return 0;
+        }
+
+        int[] stored = new int[2];
+        long index = index(position, stored);
+        int stm = stored[0];
+        int tableFile = stored[1];
+        if (type == DTZ && (pairs[0][tableFile].flags & STM) != stm && !(symmetric && !hasPawns)) {
+            state[0] = CHANGE_STM;
+            return 0;
+        }
+
+        state[0] = OK;
+        int value = pairs[type == WDL ? stm % sides() : 0][tableFile].decompress(data, index);
+        return type == WDL ? value - 2 : dtzValue(pairs[0][tableFile], value, wdl);
+    }
+
+
+
+    /**
+     * The table must be readable.
+     * @param stored receives the side to move as the file sees it and the file of the leading pawn, which pick
+     * the values holding the index
+     * @return the index of the position among those values
+     */
+    long index(Position position, int[] stored) {
+        if (!ready) load();
+        int[] squares = new int[pieceCount];
+        int[] pieces = new int[pieceCount];
+
+        // Stored with the file's first side as white, and only white to move when both sides are alike
+        boolean blackToMove = position.getSideToMove() == BLACK;
+        boolean flip = symmetric ? blackToMove : !Material.side(position, WHITE).equals(white);
+        int flipColor = flip ? 8 : 0;
+        int flipSquares = flip ? 56 : 0;
+        int stm = (flip ? 1 : 0) ^ position.getSideToMove();
+
+        int size = 0;
+        int leadPawnCount = 0;
+        long leadPawns = 0L;
+        int tableFile = 0;
+        if (hasPawns) {
+            int leadColor = (pairs[0][0].pieces[0] ^ flipColor) >>> 3;
+            leadPawns = position.pieces(leadColor, PAWN);
+            for (long b = leadPawns; b != 0; b &= b - 1) {
+                squares[size++] = Long.numberOfTrailingZeros(b) ^ flipSquares;
+            }
+            leadPawnCount = size;
+
+            int lead = 0;
+            for (int i = 1; i < leadPawnCount; i++) {
+                if (MAP_PAWNS[squares[i]] > MAP_PAWNS[squares[lead]]) lead = i;
+            }
+            swap(squares, 0, lead);
+            tableFile = Math.min(squares[0] & 7, 7 - (squares[0] & 7));
+        }
+        stored[0] = stm;
+        stored[1] = tableFile;
+
+        for (long b = position.occupied() ^ leadPawns; b != 0; b &= b - 1) {
+            int square = Long.numberOfTrailingZeros(b);
+            int piece = position.pieceAt(square);
+            squares[size] = square ^ flipSquares;
+            pieces[size++] = (color(piece) * 8 + type(piece) + 1) ^ flipColor;
+        }
+
+        Pairs d = pairs[type == WDL ? stm % sides() : 0][tableFile];
+
+        // Same piece order as the file
+        for (int i = leadPawnCount; i < size - 1; i++) {
+            for (int j = i + 1; j < size; j++) {
+                if (d.pieces[i] == pieces[j]) {
+                    swap(pieces, i, j);
+                    swap(squares, i, j);
+                    break;
+                }
+            }
+        }
+
+        if ((squares[0] & 7) > 3) {
+            for (int i = 0; i < size; i++) {
+                squares[i] ^= 7;
+            }
+        }
+
+        long index;
+        if (hasPawns) {
+            index = LEAD_PAWN_INDEX[leadPawnCount][squares[0]];
+            sortByPawnMap(squares, 1, leadPawnCount);
+            for (int i = 1; i < leadPawnCount; i++) {
+                index += BINOMIAL[i][MAP_PAWNS[squares[i]]];
+            }
+        } else {
+            if (squares[0] >>> 3 > 3) {
+                for (int i = 0; i < size; i++) {
+                    squares[i] ^= 56;
+                }
+            }
+
+            // The first piece of the leading group off the a1-h8 diagonal goes below it
+            for (int i = 0; i < d.groupLength[0]; i++) {
+                if (offDiagonal(squares[i]) == 0) continue;
+                if (offDiagonal(squares[i]) > 0) {
+                    for (int j = i; j < size; j++) {
+                        squares[j] = ((squares[j] >>> 3) | (squares[j] << 3)) & 63;
+                    }
+                }
+                break;
+            }
+            index = leadingPieces(squares);
+        }
+
+        index *= d.groupIndex[0];
+        int group = d.groupLength[0];
+        boolean remainingPawns = hasPawns && pawnCount[1] > 0;
+        for (int next = 1; d.groupLength[next] != 0; next++) {
+            Arrays.sort(squares, group, group + d.groupLength[next]);
+            long n = 0;
+            for (int i = 0; i < d.groupLength[next]; i++) {
+                // Squares taken by the previous groups are skipped
+                int adjust = 0;
+                for (int j = 0; j < group; j++) {
+                    if (squares[group + i] > squares[j]) adjust++;
+                }
+                n += BINOMIAL[i + 1][squares[group + i] - adjust - (remainingPawns ? 8 : 0)];
+            }
+            remainingPawns = false;
+            index += n * d.groupIndex[next];
+            group += d.groupLength[next];
+        }
+        return index;
+    }
+
+
+
+    private long leadingPieces(int[] squares) {
+        if (!hasUniquePieces) return MAP_KK[MAP_A1D1D4[squares[0]]][squares[1]];
+
+        int adjust1 = squares[1] > squares[0] ? 1 : 0;
+        int adjust2 = (squares[2] > squares[0] ? 1 : 0) + (squares[2] > squares[1] ? 1 : 0);
+        if (offDiagonal(squares[0]) != 0) {
+            return (MAP_A1D1D4[squares[0]] * 63L + squares[1] - adjust1) * 62 + squares[2] - adjust2;
+        }
+        if (offDiagonal(squares[1]) != 0) {
+            return (6 * 63L + (squares[0] >>> 3) * 28 + MAP_B1H1H7[squares[1]]) * 62 + squares[2] - adjust2;
+        }
+        if (offDiagonal(squares[2]) != 0) {
+            return 6 * 63 * 62 + 4 * 28 * 62 + (squares[0] >>> 3) * 7 * 28
+                    + ((squares[1] >>> 3) - adjust1) * 28 + MAP_B1H1H7[squares[2]];
+        }
+        return 6 * 63 * 62 + 4 * 28 * 62 + 4 * 7 * 28 + (squares[0] >>> 3) * 7 * 6
+                + ((squares[1] >>> 3) - adjust1) * 6 + (squares[2] >>> 3) - adjust2;
+    }
+
+
+
+    /**
+     * DTZ values are stored by decreasing frequency per result, and in moves unless the flags say plies.
+     */
+    private int dtzValue(Pairs d, int value, int wdl) {
+        int[] wdlMap = {1, 3, 0, 2, 0};
+        if ((d.flags & MAPPED) != 0) {
+            int at = d.mapIndex[wdlMap[wdl + 2]] + value;
+            value = (d.flags & WIDE) != 0 ? data.u16(map + 2L * at) : data.u8(map + at);
+        }
+        boolean moves = wdl == 2 && (d.flags & WIN_PLIES) == 0 || wdl == -2 && (d.flags & LOSS_PLIES) == 0
+                || wdl == 1 || wdl == -1;
+        if (moves) value *= 2;
+        return value + 1;
+    }
+
+
+
+    private int sides() {
+        return type == WDL && !symmetric ? 2 : 1;
+    }
+
+
+
+    private synchronized void load() {
+        if (ready) return;
+        try {
+            MappedFile mapped = MappedFile.open(file);
+            for (int i = 0; i < 4; i++) {
+                if (mapped.size() < 5 || mapped.u8(i) != MAGICS[type][i]) throw new IOException("Corrupt tablebase file " + file);
+            }
+            data = mapped;
+            parse(4);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Cannot read " + file + ": " + e.getMessage());
+            data = null;
+        }
+        ready = true;
+    }
+
+
+
+    private void parse(long offset) {
+        offset++; // Split and pawns flags, known from the name
+        int sides = sides();
+        int files = hasPawns ? 4 : 1;
+        boolean bothPawns = hasPawns && pawnCount[1] > 0;
+        pairs = new Pairs[2][4];
+
+        for (int f = 0; f < files; f++) {
+            for (int i = 0; i < sides; i++) {
+                pairs[i][f] = new Pairs(pieceCount);
+            }
+            int first = data.u8(offset);
+            int second = bothPawns ? data.u8(offset + 1) : 0xFF;
+            int[][] order = {{first & 0xF, second & 0xF}, {first >>> 4, second >>> 4}};
+            offset += bothPawns ? 2 : 1;
+
+            for (int k = 0; k < pieceCount; k++, offset++) {
+                int b = data.u8(offset);
+                for (int i = 0; i < sides; i++) {
+                    pairs[i][f].pieces[k] = i == 0 ? b & 0xF : b >>> 4;
+                }
+            }
+            for (int i = 0; i < sides; i++) {
+                setGroups(pairs[i][f], order[i], f);
+            }
+        }
+        offset += offset & 1;
+
+        for (int f = 0; f < files; f++) {
+            for (int i = 0; i < sides; i++) {
+                offset = pairs[i][f].setSizes(data, offset);
+            }
+        }
+
+        if (type == DTZ) {
+            map = offset;
+            for (int f = 0; f < files; f++) {
+                Pairs d = pairs[0][f];
+                if ((d.flags & MAPPED) == 0) continue;
+                if ((d.flags & WIDE) != 0) {
+                    offset += offset & 1;
+                    for (int i = 0; i < 4; i++) {
+                        d.mapIndex[i] = (int) ((offset - map) / 2 + 1);
+                        offset += 2L * data.u16(offset) + 2;
+                    }
+                } else {
+                    for (int i = 0; i < 4; i++) {
+                        d.mapIndex[i] = (int) (offset - map + 1);
+                        offset += data.u8(offset) + 1;
+                    }
+                }
+            }
+            offset += offset & 1;
+        }
+
+        for (int f = 0; f < files; f++) {
+            for (int i = 0; i < sides; i++) {
+                pairs[i][f].sparseIndex = offset;
+                offset += pairs[i][f].sparseIndexSize * 6;
+            }
+        }
+        for (int f = 0; f < files; f++) {
+            for (int i = 0; i < sides; i++) {
+                pairs[i][f].blockLengths = offset;
+                offset += pairs[i][f].blockLengthSize * 2;
+            }
+        }
+        for (int f = 0; f < files; f++) {
+            for (int i = 0; i < sides; i++) {
+                offset = (offset + 0x3F) & ~0x3FL;
+                pairs[i][f].data = offset;
+                offset += pairs[i][f].blockCount * pairs[i][f].blockSize;
+            }
+        }
+    }
+
+
+
+    /**
+     * Splits the pieces into groups and sets the multiplier of each group in the index, whose order the file gives.
+     */
+    private void setGroups(Pairs d, int[] order, int file) {
+        int n = 0;
+        int firstLength = hasPawns ? 0 : hasUniquePieces ? 3 : 2;
+        d.groupLength[n] = 1;
+        for (int i = 1; i < pieceCount; i++) {
+            if (--firstLength > 0 || d.pieces[i] == d.pieces[i - 1]) {
+                d.groupLength[n]++;
+            } else {
+                d.groupLength[++n] = 1;
+            }
+        }
+        d.groupLength[++n] = 0;
+
+        boolean bothPawns = hasPawns && pawnCount[1] > 0;
+        int next = bothPawns ? 2 : 1;
+        int freeSquares = 64 - d.groupLength[0] - (bothPawns ? d.groupLength[1] : 0);
+        long index = 1;
+        for (int k = 0; next < n || k == order[0] || k == order[1]; k++) {
+            if (k == order[0]) {
+                d.groupIndex[0] = index;
+                index *= hasPawns ? LEAD_PAWNS_SIZE[d.groupLength[0]][file] : hasUniquePieces ? 31332 : 462;
+            } else if (k == order[1]) {
+                d.groupIndex[1] = index;
+                index *= BINOMIAL[d.groupLength[1]][48 - d.groupLength[0]];
+            } else {
+                d.groupIndex[next] = index;
+                index *= BINOMIAL[d.groupLength[next]][freeSquares];
+                freeSquares -= d.groupLength[next++];
+            }
+        }
+        d.groupIndex[n] = index;
+    }
+
+
+
+    private static void sortByPawnMap(int[] squares, int from, int to) {
+        // Insertion sort, stable and at most five pawns
+        for (int i = from + 1; i < to; i++) {
+            int square = squares[i];
+            int j = i - 1;
+            while (j >= from && MAP_PAWNS[squares[j]] > MAP_PAWNS[square]) {
+                squares[j + 1] = squares[j];
+                j--;
+            }
+            squares[j + 1] = square;
+        }
+    }
+
+
+
+    private static int offDiagonal(int square) {
+        return (square >>> 3) - (square & 7);
+    }
+
+
+
+    private static int count(String side, char piece) {
+        return (int) side.chars().filter(ch -> ch == piece).count();
+    }
+
+
+
+    private static void swap(int[] values, int i, int j) {
+        int value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+
+
+    /**
+     * Decoding data of one side to move and leading pawn file. Offsets point into the mapped file.
+     */
+    private static final class Pairs {
+
+        private final int[] pieces;
+
+        private final int[] groupLength = new int[8];
+
+        private final long[] groupIndex = new long[8];
+
+        private final int[] mapIndex = new int[4];
+
+        private int flags;
+
+        private int minSymbolLength;
+
+        private long blockSize;
+
+        private long span;
+
+        private long blockCount;
+
+        private long blockLengthSize;
+
+        private long sparseIndexSize;
+
+        private long lowestSymbols;
+
+        private long tree;
+
+        private long sparseIndex;
+
+        private long blockLengths;
+
+        private long data;
+
+        // Lowest symbol of each length left-aligned in 64 bits, longest symbols have the lowest codes
+        private long[] base;
+
+        // Number of values minus one each symbol expands to
+        private int[] symbolLength;
+
+
+
+        Pairs(int pieceCount) {
+            this.pieces = new int[pieceCount];
+        }
+
+
+
+        long setSizes(MappedFile file, long offset) {
+            flags = file.u8(offset++);
+            if ((flags & SINGLE_VALUE) != 0) {
+                minSymbolLength = file.u8(offset++);
+                return offset;
+            }
+
+            int groups = 0;
+            while (groupLength[groups] != 0) groups++;
+            long tableSize = groupIndex[groups];
+
+            blockSize = 1L << file.u8(offset++);
+            span = 1L << file.u8(offset++);
+            sparseIndexSize = (tableSize + span - 1) / span;
+            int padding = file.u8(offset++);
+            blockCount = file.u32(offset);
+            offset += 4;
+            blockLengthSize = blockCount + padding;
+            int maxSymbolLength = file.u8(offset++);
+            minSymbolLength = file.u8(offset++);
+            lowestSymbols = offset;
+
+            base = new long[maxSymbolLength - minSymbolLength + 1];
+            for (int i = base.length - 2; i >= 0; i--) {
+                base[i] = (base[i + 1] + file.u16(lowestSymbols + 2L * i) - file.u16(lowestSymbols + 2L * (i + 1))) / 2;
+            }
+            for (int i = 0; i < base.length; i++) {
+                int shift = 64 - i - minSymbolLength;
+                base[i] = shift >= 64 ? 0 : base[i] << shift;
+            }
+
+            offset += 2L * base.length;
+            symbolLength = new int[file.u16(offset)];
+            offset += 2;
+            tree = offset;
+
+            boolean[] visited = new boolean[symbolLength.length];
+            for (int symbol = 0; symbol < symbolLength.length; symbol++) {
+                if (!visited[symbol]) symbolLength[symbol] = expand(file, symbol, visited);
+            }
+            return offset + 3L * symbolLength.length + (symbolLength.length & 1);
+        }
+
+
+
+        private int expand(MappedFile file, int symbol, boolean[] visited) {
+            visited[symbol] = true;
+            int right = right(file, symbol);
+            if (right == 0xFFF) return 0;
+
+            int left = left(file, symbol);
+            if (!visited[left]) symbolLength[left] = expand(file, left, visited);
+            if (!visited[right]) symbolLength[right] = expand(file, right, visited);
+            return (symbolLength[left] + symbolLength[right] + 1) & 0xFF;
+        }
+
+
+
+        int decompress(MappedFile file, long index) {
+            if ((flags & SINGLE_VALUE) != 0) return minSymbolLength;
+
+            // The sparse entry k points at the value k * span + span / 2, walk the block lengths from there
+            int k = (int) (index / span);
+            long block = file.u32(sparseIndex + 6L * k);
+            int offset = file.u16(sparseIndex + 6L * k + 4);
+            offset += (int) (index % span - span / 2);
+            while (offset < 0) {
+                offset += file.u16(blockLengths + 2 * --block) + 1;
+            }
+            while (offset > file.u16(blockLengths + 2 * block)) {
+                offset -= file.u16(blockLengths + 2 * block++) + 1;
+            }
+
+            long pointer = data + block * blockSize;
+            long buffer = file.u64BigEndian(pointer);
+            pointer += 8;
+            int bits = 64;
+            int symbol;
+            while (true) {
+                int length = 0;
+                while (Long.compareUnsigned(buffer, base[length]) < 0) length++;
+                symbol = (int) ((buffer - base[length]) >>> (64 - length - minSymbolLength));
+                symbol = (symbol + file.u16(lowestSymbols + 2L * length)) & 0xFFFF;
+                if (offset < symbolLength[symbol] + 1) break;
+
+                offset -= symbolLength[symbol] + 1;
+                length += minSymbolLength;
+                buffer <<= length;
+                bits -= length;
+                if (bits <= 32) {
+                    bits += 32;
+                    buffer |= file.u32BigEndian(pointer) << (64 - bits);
+                    pointer += 4;
+                }
+            }
+
+            // Down the pair tree to the single value at the offset
+            while (symbolLength[symbol] != 0) {
+                int left = left(file, symbol);
+                if (offset < symbolLength[left] + 1) {
+                    symbol = left;
+                } else {
+                    offset -= symbolLength[left] + 1;
+                    symbol = right(file, symbol);
+                }
+            }
+            return left(file, symbol);
+        }
+
+
+
+        private int left(MappedFile file, int symbol) {
+            long at = tree + 3L * symbol;
+            return (file.u8(at + 1) & 0xF) << 8 | file.u8(at);
+        }
+
+
+
+        private int right(MappedFile file, int symbol) {
+            long at = tree + 3L * symbol;
+            return file.u8(at + 2) << 4 | file.u8(at + 1) >>> 4;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package org.aouessar.chessgame.tablebase;
+
+import org.aouessar.chessgame.ai.Search;
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Position;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Distance-to-mate tables written by {@link TablebaseGenerator}, memory-mapped from a directory on first use.
+ * A probe is a few shifts to find the entry and one or two reads of the mapping, and any number of threads
+ * may probe at once.
+ * <p>
+ * File layout, little endian: the magic {@code "CTB1"}, the bits per entry and the number of entries as ints,
+ * then the entries packed back to back into longs. An entry is {@link #DRAW}, {@link #ILLEGAL}, or the number
+ * of plies to mate plus 2: even when the side to move gets mated, odd when it mates.
+ * <p>
+ * Entries ignore en passant. A position with a live en passant square reads the entry of the same placement,
+ * which holds its other moves, and tries the captures on top.
+ */
+public class Tablebase {
+
+    public static final String EXTENSION = ".ctb";
+
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    static final int MAGIC = 0x31425443;
+
+    static final int HEADER_BYTES = 12;
+
+    static final int DRAW = 0;
+
+    static final int ILLEGAL = 1;
+
+    static final int NO_CAPTURE = -Search.INFINITY;
+
+    private final Path directory;
+
+    // Only tables found on disk are cached, so tables generated later are still picked up
+    private final Map<Material, Table> tables = new ConcurrentHashMap<>();
+
+
+
+    public Tablebase(Path directory) {
+        this.directory = directory;
+    }
+
+
+
+    /**
+     * @return the score for the side to move in {@link Search} units: 0 for a draw, {@code MATE - n} when it mates
+     * in n plies, {@code -(MATE - n)} when it is mated in n, or {@link #NOT_FOUND} without a table
+     */
+    public int probe(Position position) {
+        int value = probeValue(position);
+        if (value == NOT_FOUND || value == ILLEGAL) return NOT_FOUND;
+        return score(value);
+    }
+
+
+
+    /**
+     * The move keeping the best table result: the fastest mate, else a draw, else the longest resistance.
+     * @return the move, or {@link Move#NONE} when the position or one of its successors has no table
+     */
+    public int bestMove(Position position) {
+        if (position.getCastlingRights() != 0 || Material.of(position) == null) return Move.NONE;
+
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, moves);
+        Position board = position.copy();
+
+        int bestMove = Move.NONE;
+        int bestScore = -Search.INFINITY;
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            int score = probe(board);
+            board.unmakeMove();
+            if (score == NOT_FOUND) return Move.NONE;
+            if (-score > bestScore) {
+                bestScore = -score;
+                bestMove = moves.get(i);
+            }
+        }
+        return bestMove;
+    }
+
+
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+
+
+    /**
+     * @return the raw entry of the position, {@link #NOT_FOUND} when no table covers it
+     */
+    int probeValue(Position position) {
+        if (position.getCastlingRights() != 0) return NOT_FOUND;
+        Material material = Material.of(position);
+        if (material == null) return NOT_FOUND;
+        if (material.isTrivialDraw()) return DRAW;
+
+        Table table = table(material);
+        if (table == null) return NOT_FOUND;
+        int value = table.get(material.index(position, new int[Material.MAX_PIECES]));
+        if (position.getEnPassantSquare() < 0 || value == ILLEGAL) return value;
+
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, moves);
+        int capture = probeEnPassant(position, moves);
+        if (capture == NOT_FOUND) return NOT_FOUND;
+        if (capture == NO_CAPTURE) return value;
+        // The entry stands for the other moves, a position left with the capture alone is decided by it
+        return value(hasOtherMoves(moves) ? Math.max(capture, score(value)) : capture);
+    }
+
+
+
+    /**
+     * @param moves the legal moves of the position
+     * @return the best score the en passant captures give the side to move, {@link #NO_CAPTURE} without a legal one
+     * or {@link #NOT_FOUND} when the table of a capture is missing
+     */
+    int probeEnPassant(Position position, MoveList moves) {
+        int best = NO_CAPTURE;
+        for (int i = 0; i < moves.size(); i++) {
+            if (!Move.isEnPassant(moves.get(i))) continue;
+            position.makeMove(moves.get(i));
+            int value = probeValue(position);
+            position.unmakeMove();
+            if (value == NOT_FOUND || value == ILLEGAL) return NOT_FOUND;
+            best = Math.max(best, parent(score(value)));
+        }
+        return best;
+    }
+
+
+
+    static boolean hasOtherMoves(MoveList moves) {
+        for (int i = 0; i < moves.size(); i++) {
+            if (!Move.isEnPassant(moves.get(i))) return true;
+        }
+        return false;
+    }
+
+
+
+    /**
+     * @return the raw entry as a {@link Search} score for the side to move
+     */
+    static int score(int value) {
+        if (value == DRAW) return 0;
+        int plies = value - 2;
+        return plies % 2 == 1 ? Search.MATE - plies : -(Search.MATE - plies);
+    }
+
+
+
+    /**
+     * @return the raw entry of a {@link Search} score
+     */
+    static int value(int score) {
+        return score == 0 ? DRAW : Search.MATE - Math.abs(score) + 2;
+    }
+
+
+
+    /**
+     * @return the score of the side that moved into a position scored {@code score}, one ply further from the mate
+     */
+    static int parent(int score) {
+        if (score == 0) return 0;
+        return score > 0 ? -(score - 1) : -(score + 1);
+    }
+
+
+
+    static Path file(Path directory, Material material) {
+        return directory.resolve(material.getName() + EXTENSION);
+    }
+
+
+
+    private Table table(Material material) {
+        Table table = tables.get(material);
+        if (table != null) return table;
+
+        Path file = file(directory, material);
+        if (!Files.isRegularFile(file)) return null;
+        try {
+            table = Table.open(file, material);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Table previous = tables.putIfAbsent(material, table);
+        return previous != null ? previous : table;
+    }
+
+
+
+    private record Table(ByteBuffer buffer, int bits) {
+
+        static Table open(Path file, Material material) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+                if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) throw new IOException("Not a tablebase file: " + file);
+
+                int bits = buffer.getInt(4);
+                int entries = buffer.getInt(8);
+                if (bits < 1 || bits > 8 || entries != material.getSize()
+                        || buffer.capacity() != HEADER_BYTES + words(entries, bits) * Long.BYTES) {
+                    throw new IOException("Corrupt tablebase file " + file);
+                }
+                return new Table(buffer, bits);
+            }
+        }
+
+        int get(int index) {
+            long bit = (long) index * bits;
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            long value = buffer.getLong(HEADER_BYTES + word * Long.BYTES) >>> shift;
+            // The last word is padding, so an entry straddling two words can always read the second one
+            if (shift + bits > 64) value |= buffer.getLong(HEADER_BYTES + (word + 1) * Long.BYTES) << (64 - shift);
+            return (int) (value & ((1L << bits) - 1));
+        }
+    }
+
+
+
+    /**
+     * @return the longs holding {@code entries} packed values, plus one of padding
+     */
+    static int words(int entries, int bits) {
+        return (int) (((long) entries * bits + 63 >>> 6) + 1);
+    }
+}
@@ -0,0 +1,511 @@
+package org.aouessar.chessgame.tablebase;
+
+import org.aouessar.chessgame.ai.Search;
+import org.aouessar.chessgame.core.Attacks;
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Perft;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.aouessar.chessgame.core.Pieces.*;
+
+/**
+ * Builds distance-to-mate tables by retrograde analysis, from the mates backwards.
+ * <p>
+ * A first pass visits every index once: illegal placements are marked, mates are lost in 0 plies, and each position
+ * counts its moves staying inside the table. Captures and promotions leave the table, their result is read from the
+ * smaller tables, which are generated first.
+ * Then pass n takes every position decided at ply n and walks its moves backwards: the positions that could move
+ * into a loss win at n + 1, and those that could move into a win lose one escape. A position whose escapes all run
+ * out is lost, at the ply of its slowest way out.
+ * <p>
+ * With pawns on both sides a double push may allow an en passant capture. The position after it is not an entry:
+ * it is the entry of the same placement plus the capture, whose result is read from the smaller tables up front.
+ * Walking back through such a push uses the better of the two for the capturing side, which may mean skipping
+ * the entry's result or applying the capture's at its own ply instead.
+ * <p>
+ * Every pass is a scan of the whole table split among the threads, entries are updated with atomic operations.
+ */
+public class TablebaseGenerator {
+
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private static final int CHUNK = 1 << 12;
+
+    // Plies fit a byte with the offset of 2 for the draw and illegal markers, and stay below DRAWING_EXIT
+    private static final int MAX_PLIES = 252;
+
+    // Exit marker for positions where a capture or a promotion draws, so they can never be lost
+    private static final int DRAWING_EXIT = 255;
+
+    // En passant marker for positions without a double push allowing the capture
+    private static final byte NO_EN_PASSANT = (byte) Tablebase.ILLEGAL;
+
+    private final Path directory;
+
+    private final int threads;
+
+    private final Tablebase tablebase;
+
+
+
+    public TablebaseGenerator(Path directory, int threads) {
+        this.directory = directory;
+        this.threads = Math.max(1, threads);
+        this.tablebase = new Tablebase(directory);
+    }
+
+
+
+    /**
+     * Generates the table and, first, the tables it resolves into. Tables already in the directory are kept.
+     */
+    public void generate(Material material) throws IOException {
+        if (material.isTrivialDraw() || Files.exists(Tablebase.file(directory, material))) return;
+        for (Material successor : material.successors()) {
+            generate(successor);
+        }
+
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        Generation generation = new Generation(material);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(generation::run).join();
+        } finally {
+            pool.shutdown();
+        }
+        generation.write(Tablebase.file(directory, material));
+
+        System.out.println(material + ": " + generation.decided + " decided positions, longest mate "
+                + generation.longest + " plies | " + Perft.report(material.getSize(), System.nanoTime() - start));
+    }
+
+
+
+    /**
+     * State of one table being built. Entries are the raw values of {@link Tablebase}, {@link Tablebase#DRAW}
+     * doubling as undecided until the end.
+     */
+    private final class Generation {
+
+        private final Material material;
+
+        private final int[] pieces;
+
+        private final byte[] values;
+
+        // Moves to undecided or winning positions inside the table, for the side to move
+        private final byte[] escapes;
+
+        // Ply + 1 of the fastest mate through a capture or a promotion, 0 without one
+        private final byte[] exitWins;
+
+        // Ply + 1 of the slowest mate through a capture or a promotion, or DRAWING_EXIT
+        private final byte[] exitLosses;
+
+        // Raw value the en passant capture after the double push gives the opponent, or NO_EN_PASSANT.
+        // Null unless both sides have pawns
+        private final byte[] enPassant;
+
+        // Highest ply a position was decided at before its pass came
+        private final AtomicInteger scheduled = new AtomicInteger();
+
+        private long decided;
+
+        private int longest;
+
+
+
+        Generation(Material material) {
+            this.material = material;
+            this.pieces = material.getPieces();
+            this.values = new byte[material.getSize()];
+            this.escapes = new byte[material.getSize()];
+            this.exitWins = new byte[material.getSize()];
+            this.exitLosses = new byte[material.getSize()];
+            this.enPassant = hasPawn(WHITE) && hasPawn(BLACK) ? new byte[material.getSize()] : null;
+            if (enPassant != null) Arrays.fill(enPassant, NO_EN_PASSANT);
+        }
+
+
+
+        void run() {
+            parallel(this::initialize);
+            for (int ply = 0; ; ply++) {
+                if (ply > MAX_PLIES) throw new IllegalStateException("Mate longer than " + MAX_PLIES + " plies in " + material);
+                int current = ply;
+                if (ply % 2 == 1) parallel((from, to) -> exitWins(from, to, current));
+                if (ply % 2 == 1 && enPassant != null) parallel((from, to) -> enPassantWins(from, to, current));
+
+                AtomicInteger found = new AtomicInteger();
+                parallel((from, to) -> found.addAndGet(retrograde(from, to, current)));
+                if (found.get() == 0 && ply >= scheduled.get()) break;
+                if (found.get() > 0) longest = ply;
+            }
+            for (byte value : values) {
+                if (value != Tablebase.DRAW && value != Tablebase.ILLEGAL) decided++;
+            }
+        }
+
+
+
+        private void initialize(int from, int to) {
+            int[] squares = new int[Material.MAX_PIECES];
+            Position position = new Position();
+            Position child = new Position();
+            MoveList moves = new MoveList();
+            MoveList replies = new MoveList();
+
+            for (int index = from; index < to; index++) {
+                int side = material.decode(index, squares);
+                if (side < 0 || !isValid(squares)) {
+                    values[index] = Tablebase.ILLEGAL;
+                    continue;
+                }
+                position.setUp(pieces, squares, pieces.length, side);
+                if (position.isInCheck(side ^ 1)) {
+                    values[index] = Tablebase.ILLEGAL;
+                    continue;
+                }
+
+                MoveGenerator.generateLegalMoves(position, moves);
+                if (moves.isEmpty()) {
+                    // Stalemates stay undecided, so draws
+                    if (position.isInCheck(side)) values[index] = 2;
+                    continue;
+                }
+
+                int count = 0;
+                int exitWin = 0;
+                int exitLoss = 0;
+                for (int i = 0; i < moves.size(); i++) {
+                    int move = moves.get(i);
+                    boolean quiet = !Move.isPromotion(move) && position.pieceAt(Move.to(move)) == NONE;
+                    if (quiet && (enPassant == null || !isDoublePush(position, move))) {
+                        count++;
+                        continue;
+                    }
+
+                    child.setUp(pieces, squares, pieces.length, side);
+                    child.makeMove(move);
+                    int value;
+                    if (quiet) {
+                        MoveGenerator.generateLegalMoves(child, replies);
+                        int capture = tablebase.probeEnPassant(child, replies);
+                        if (capture == Tablebase.NOT_FOUND) throw new IllegalStateException("No table after " + child.toFen());
+                        if (capture != Tablebase.NO_CAPTURE) enPassant[index] = (byte) Tablebase.value(capture);
+                        if (capture == Tablebase.NO_CAPTURE || Tablebase.hasOtherMoves(replies) || child.isInCheck(side ^ 1)) {
+                            // The entry after the push still counts, combined with the capture on the way back
+                            count++;
+                            if (capture > 0) scheduled.accumulateAndGet(Search.MATE - capture, Math::max);
+                            continue;
+                        }
+                        // Stalemated but for the capture, the push is an exit like any other
+                        enPassant[index] = NO_EN_PASSANT;
+                        value = Tablebase.value(capture);
+                    } else {
+                        value = tablebase.probeValue(child);
+                    }
+                    if (value == Tablebase.NOT_FOUND || value == Tablebase.ILLEGAL) {
+                        throw new IllegalStateException("No table for " + child.toFen());
+                    }
+                    if (value == Tablebase.DRAW) {
+                        exitLoss = DRAWING_EXIT;
+                    } else if ((value - 2) % 2 == 0) {
+                        exitWin = exitWin == 0 ? value - 1 : Math.min(exitWin, value - 1);
+                    } else if (exitLoss != DRAWING_EXIT) {
+                        exitLoss = Math.max(exitLoss, value);
+                    }
+                }
+
+                escapes[index] = (byte) count;
+                exitWins[index] = (byte) (exitWin == 0 ? 0 : exitWin + 1);
+                exitLosses[index] = (byte) exitLoss;
+                if (exitWin != 0) scheduled.accumulateAndGet(exitWin, Math::max);
+                if (count == 0 && exitWin == 0 && exitLoss != DRAWING_EXIT) {
+                    // Every move leaves the table and loses
+                    values[index] = (byte) (exitLoss - 1 + 2);
+                    scheduled.accumulateAndGet(exitLoss - 1, Math::max);
+                }
+            }
+        }
+
+
+
+        private void exitWins(int from, int to, int ply) {
+            for (int index = from; index < to; index++) {
+                if (values[index] == Tablebase.DRAW && (exitWins[index] & 0xFF) == ply + 1) values[index] = (byte) (ply + 2);
+            }
+        }
+
+
+
+        /**
+         * Walks back from the positions decided at {@code ply}.
+         * @return how many there were
+         */
+        private int retrograde(int from, int to, int ply) {
+            int[] squares = new int[Material.MAX_PIECES];
+            int[] previous = new int[Material.MAX_PIECES];
+            int found = 0;
+
+            for (int index = from; index < to; index++) {
+                if ((values[index] & 0xFF) != ply + 2) continue;
+                found++;
+
+                int side = material.decode(index, squares);
+                int mover = side ^ 1;
+                long occupied = 0L;
+                for (int slot = 0; slot < pieces.length; slot++) {
+                    occupied |= 1L << squares[slot];
+                }
+
+                for (int slot = 0; slot < pieces.length; slot++) {
+                    int piece = pieces[slot];
+                    if (Pieces.color(piece) != mover) continue;
+                    int square = squares[slot];
+
+                    long origins;
+                    if (Pieces.type(piece) == PAWN) {
+                        // Pushes only, captures and promotions never lead back into the same table
+                        int back = mover == WHITE ? -8 : 8;
+                        int origin = square + back;
+                        origins = 0L;
+                        if (origin >= 8 && origin < 56 && (occupied & 1L << origin) == 0) {
+                            origins = 1L << origin;
+                            int rank = square >>> 3;
+                            if ((rank == 3 && mover == WHITE || rank == 4 && mover == BLACK) && (occupied & 1L << (origin + back)) == 0) {
+                                origins |= 1L << (origin + back);
+                            }
+                        }
+                    } else {
+                        origins = attacks(piece, square, occupied) & ~occupied;
+                    }
+
+                    for (; origins != 0; origins &= origins - 1) {
+                        System.arraycopy(squares, 0, previous, 0, pieces.length);
+                        previous[slot] = Long.numberOfTrailingZeros(origins);
+                        // The side that is not to move before the move cannot be in check, its king is in slot side
+                        if (isAttacked(previous, previous[side], mover)) continue;
+                        int before = material.encode(mover, previous);
+                        if (enPassant != null && Pieces.type(piece) == PAWN && Math.abs(previous[slot] - square) == 16) {
+                            throughDoublePush(before, ply);
+                        } else {
+                            update(before, ply);
+                        }
+                    }
+                }
+            }
+            return found;
+        }
+
+
+
+        /**
+         * Like {@link #update} for a double push, but the opponent may answer it with an en passant capture
+         * instead of playing on from the entry decided at {@code ply}.
+         */
+        private void throughDoublePush(int index, int ply) {
+            byte capture = enPassant[index];
+            if (capture == NO_EN_PASSANT) {
+                update(index, ply);
+                return;
+            }
+            int score = Tablebase.score(capture & 0xFF);
+            if (ply % 2 == 0) {
+                // The entry mates the opponent, the capture may hold or be mated later
+                if (score >= 0) return;
+                int mated = Search.MATE + score;
+                if (ply >= mated) {
+                    update(index, ply);
+                } else {
+                    deferWin(index, mated + 1);
+                }
+            } else if (score <= 0 || ply <= Search.MATE - score) {
+                // The entry wins for the opponent, and no later than the capture would
+                update(index, ply);
+            }
+        }
+
+
+
+        /**
+         * Resolves the double pushes whose en passant capture mates at {@code ply}, unless the entry after the push
+         * already won sooner for the opponent.
+         */
+        private void enPassantWins(int from, int to, int ply) {
+            int[] squares = new int[Material.MAX_PIECES];
+            int[] scratch = new int[Material.MAX_PIECES];
+            Position position = new Position();
+            MoveList moves = new MoveList();
+
+            for (int index = from; index < to; index++) {
+                if (enPassant[index] == NO_EN_PASSANT || values[index] != Tablebase.DRAW) continue;
+                if (Tablebase.score(enPassant[index] & 0xFF) != Search.MATE - ply) continue;
+
+                int side = material.decode(index, squares);
+                position.setUp(pieces, squares, pieces.length, side);
+                MoveGenerator.generateLegalMoves(position, moves);
+                for (int i = 0; i < moves.size(); i++) {
+                    if (!isDoublePush(position, moves.get(i))) continue;
+                    position.makeMove(moves.get(i));
+                    int after = values[material.index(position, scratch)] & 0xFF;
+                    position.unmakeMove();
+                    int plies = after - 2;
+                    if (after == Tablebase.DRAW || plies % 2 == 0 || plies > ply) update(index, ply);
+                }
+            }
+        }
+
+
+
+        private void deferWin(int index, int ply) {
+            int current;
+            do {
+                current = (byte) BYTES.getVolatile(exitWins, index) & 0xFF;
+                if (current != 0 && current <= ply + 1) return;
+            } while (!BYTES.compareAndSet(exitWins, index, (byte) current, (byte) (ply + 1)));
+            scheduled.accumulateAndGet(ply, Math::max);
+        }
+
+
+
+        private void update(int index, int ply) {
+            if (ply % 2 == 0) {
+                BYTES.compareAndSet(values, index, (byte) Tablebase.DRAW, (byte) (ply + 1 + 2));
+                return;
+            }
+            if (values[index] != Tablebase.DRAW) return;
+
+            // A compare-and-set loop, C2 on JDK 17 miscompiles getAndAdd on bytes
+            int left;
+            do {
+                left = (byte) BYTES.getVolatile(escapes, index);
+            } while (!BYTES.compareAndSet(escapes, index, (byte) left, (byte) (left - 1)));
+            left--;
+            int exitLoss = exitLosses[index] & 0xFF;
+            if (left == 0 && exitWins[index] == 0 && exitLoss != DRAWING_EXIT) {
+                int lost = Math.max(ply + 1, exitLoss - 1);
+                BYTES.compareAndSet(values, index, (byte) Tablebase.DRAW, (byte) (lost + 2));
+                scheduled.accumulateAndGet(lost, Math::max);
+            }
+        }
+
+
+
+        private boolean hasPawn(int color) {
+            for (int piece : pieces) {
+                if (piece == Pieces.make(color, PAWN)) return true;
+            }
+            return false;
+        }
+
+
+
+        private boolean isValid(int[] squares) {
+            long occupied = 0L;
+            for (int slot = 0; slot < pieces.length; slot++) {
+                int square = squares[slot];
+                if ((occupied & 1L << square) != 0) return false;
+                if (Pieces.type(pieces[slot]) == PAWN && (square < 8 || square >= 56)) return false;
+                occupied |= 1L << square;
+            }
+            return true;
+        }
+
+
+
+        private boolean isAttacked(int[] squares, int target, int byColor) {
+            long occupied = 0L;
+            for (int slot = 0; slot < pieces.length; slot++) {
+                occupied |= 1L << squares[slot];
+            }
+            for (int slot = 0; slot < pieces.length; slot++) {
+                if (Pieces.color(pieces[slot]) == byColor && (attacks(pieces[slot], squares[slot], occupied) & 1L << target) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+
+
+        private void parallel(Range range) {
+            int chunks = (values.length + CHUNK - 1) / CHUNK;
+            IntStream.range(0, chunks).parallel().forEach(chunk -> range.run(chunk * CHUNK, Math.min(values.length, (chunk + 1) * CHUNK)));
+        }
+
+
+
+        void write(Path file) throws IOException {
+            int max = 0;
+            for (byte value : values) {
+                max = Math.max(max, value & 0xFF);
+            }
+            int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(max));
+
+            long[] words = new long[Tablebase.words(values.length, bits)];
+            for (int index = 0; index < values.length; index++) {
+                long bit = (long) index * bits;
+                long value = values[index] & 0xFF;
+                int word = (int) (bit >>> 6);
+                int shift = (int) (bit & 63);
+                words[word] |= value << shift;
+                if (shift + bits > 64) words[word + 1] |= value >>> (64 - shift);
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(Tablebase.HEADER_BYTES + words.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(Tablebase.MAGIC).putInt(bits).putInt(values.length);
+            buffer.asLongBuffer().put(words);
+
+            // Written under a temporary name, a table only shows up once complete
+            Path partial = file.resolveSibling(file.getFileName() + ".part");
+            try (OutputStream out = Files.newOutputStream(partial)) {
+                out.write(buffer.array());
+            }
+            Files.move(partial, file);
+        }
+    }
+
+
+
+    @FunctionalInterface
+    private interface Range {
+        void run(int from, int to);
+    }
+
+
+
+    private static boolean isDoublePush(Position position, int move) {
+        return Pieces.type(position.pieceAt(Move.from(move))) == PAWN && Math.abs(Move.to(move) - Move.from(move)) == 16;
+    }
+
+
+
+    private static long attacks(int piece, int square, long occupied) {
+        return switch (Pieces.type(piece)) {
+            case PAWN -> Attacks.pawnAttacks(Pieces.color(piece), square);
+            case KNIGHT -> Attacks.knightAttacks(square);
+            case BISHOP -> Attacks.bishopAttacks(square, occupied);
+            case ROOK -> Attacks.rookAttacks(square, occupied);
+            case QUEEN -> Attacks.queenAttacks(square, occupied);
+            default -> Attacks.kingAttacks(square);
+        };
+    }
+}
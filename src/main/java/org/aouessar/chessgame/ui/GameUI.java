@@ -1,15 +1,30 @@
 package org.aouessar.chessgame.ui;
 
+import javafx.geometry.Pos;
 import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Text;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
 import lombok.Getter;
 import lombok.Setter;
 import org.aouessar.chessgame.Board;
 import org.aouessar.chessgame.ChessGame;
-import org.aouessar.chessgame.piece.Piece;
+import org.aouessar.chessgame.core.Bitboards;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
 
 @Getter
 @Setter
@@ -21,18 +36,40 @@ public class GameUI {
 
     private Rectangle highlightedTile;
 
+    private final List<Rectangle> threatOverlays;
+
+    // Piece code drawn on each square and the node drawing it
+    private final int[] shown;
+
+    private final ImageView[] views;
+
+    // Unused image views per piece code, so restarts and promotions reuse the nodes already created
+    private final List<Deque<ImageView>> pool;
+
 
 
     public GameUI(GridPane grid, Board board) {
         this.grid = grid;
         this.board = board;
         this.highlightedTile = null;
+        this.threatOverlays = new ArrayList<>();
+        this.shown = new int[64];
+        this.views = new ImageView[64];
+        this.pool = new ArrayList<>();
+        for (int piece = 0; piece < 12; piece++) {
+            pool.add(new ArrayDeque<>());
+        }
+        Arrays.fill(shown, Pieces.NONE);
     }
 
 
 
     public void renderBoard() {
+        for (int square = 0; square < 64; square++) {
+            release(square);
+        }
         grid.getChildren().clear(); // Clear previous board before rendering
+        threatOverlays.clear();
 
         for (int row = 0; row < board.getGameState().getHEIGHT(); row++) {
             for (int col = 0; col < board.getGameState().getWIDTH(); col++) {
@@ -63,17 +100,92 @@ public class GameUI {
 
 
 
-    public void addPieceToGrid(Piece piece) {
-        piece.getIcon().setFitWidth(ChessGame.TILE_SIZE * 0.98);
-        piece.getIcon().setFitHeight(ChessGame.TILE_SIZE * 0.98);
-        piece.getIcon().setMouseTransparent(true);
-        grid.add(piece.getIcon(), piece.getCol(), piece.getRow());
+    /**
+     * Brings the drawn pieces in line with the position, only the squares whose content changed are touched.
+     */
+    public void syncPieces(Position position) {
+        for (int square = 0; square < 64; square++) {
+            int piece = position.pieceAt(square);
+            if (shown[square] == piece) continue;
+
+            release(square);
+            if (piece != Pieces.NONE) {
+                ImageView view = acquire(piece);
+                grid.add(view, Bitboards.col(square), Bitboards.row(square));
+                views[square] = view;
+                shown[square] = piece;
+            }
+        }
     }
 
 
 
-    public void removePieceFromGrid(Piece piece) {
-        grid.getChildren().remove(piece.getIcon());
+    private ImageView acquire(int piece) {
+        ImageView view = pool.get(piece).poll();
+        if (view != null) return view;
+
+        view = new ImageView(board.getPieceImages().get(Pieces.toChar(piece)));
+        view.setFitWidth(ChessGame.TILE_SIZE * 0.98);
+        view.setFitHeight(ChessGame.TILE_SIZE * 0.98);
+        view.setMouseTransparent(true);
+        return view;
+    }
+
+
+
+    private void release(int square) {
+        ImageView view = views[square];
+        if (view == null) return;
+
+        grid.getChildren().remove(view);
+        pool.get(shown[square]).push(view);
+        views[square] = null;
+        shown[square] = Pieces.NONE;
+    }
+
+
+
+    /**
+     * Asks the player which piece a pawn promotes to, closing the dialog keeps the Queen.
+     * @return the chosen piece type
+     */
+    public int choosePromotion(boolean white) {
+        // Create a new Stage for the promotion dialog
+        Stage dialogStage = new Stage();
+        dialogStage.initModality(Modality.APPLICATION_MODAL);
+        dialogStage.setTitle("Pawn Promotion");
+
+        // HBox to hold piece options
+        HBox hbox = new HBox();
+        hbox.setAlignment(Pos.CENTER);
+        hbox.setSpacing(20);
+
+        int[] choice = {Pieces.QUEEN};
+
+        for (int type : new int[]{Pieces.QUEEN, Pieces.ROOK, Pieces.BISHOP, Pieces.KNIGHT}) {
+            char name = Pieces.toChar(Pieces.make(white ? Pieces.WHITE : Pieces.BLACK, type));
+
+            // Create an ImageView for each piece
+            ImageView imageView = new ImageView(board.getPieceImages().get(name));
+            imageView.setFitHeight(60);
+            imageView.setFitWidth(60);
+
+            // Create a Button for each piece option
+            Button button = new Button();
+            button.setGraphic(imageView);
+            button.setOnAction(e -> {
+                choice[0] = type;
+                dialogStage.close();
+            });
+
+            hbox.getChildren().add(button);
+        }
+
+        // Set up the scene and show the dialog
+        dialogStage.setScene(new Scene(hbox));
+        dialogStage.showAndWait();
+
+        return choice[0];
     }
 
 
@@ -104,6 +216,33 @@ public class GameUI {
 
 
 
+    /**
+     * Tints every attacked square, the set comes straight from the position's attack map.
+     */
+    public void showThreats(long attacked) {
+        clearThreats();
+
+        for (; attacked != 0; attacked &= attacked - 1) {
+            int square = Bitboards.first(attacked);
+            Rectangle overlay = new Rectangle(board.getGameState().getTILE_SIZE(), board.getGameState().getTILE_SIZE());
+            overlay.setFill(Color.RED);
+            overlay.setOpacity(0.3);
+            overlay.setMouseTransparent(true);
+
+            grid.add(overlay, Bitboards.col(square), Bitboards.row(square));
+            threatOverlays.add(overlay);
+        }
+    }
+
+
+
+    public void clearThreats() {
+        grid.getChildren().removeAll(threatOverlays);
+        threatOverlays.clear();
+    }
+
+
+
     /**
      * Adds chessboard annotations (like "a1", "h8") to the grid.
      */
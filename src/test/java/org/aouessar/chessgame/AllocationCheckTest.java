@@ -0,0 +1,25 @@
+package org.aouessar.chessgame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The rules hot paths allocate nothing once warmed up.
+ */
+class AllocationCheckTest {
+
+    @Test
+    void hotPathsDoNotAllocate() {
+        AllocationCheck check = new AllocationCheck();
+        assumeTrue(check.isSupported(), "Allocation counter not supported by this JVM");
+
+        for (Map.Entry<String, Long> entry : check.measure().entrySet()) {
+            assertTrue(entry.getValue() <= AllocationCheck.NOISE_BYTES,
+                    entry.getKey() + " allocated " + entry.getValue() + " bytes");
+        }
+    }
+}
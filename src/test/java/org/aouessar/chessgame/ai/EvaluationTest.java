@@ -0,0 +1,66 @@
+package org.aouessar.chessgame.ai;
+
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Perft;
+import org.aouessar.chessgame.core.Position;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The sums updated move by move, and the cached pawn terms, match an evaluation rebuilt from the board.
+ */
+class EvaluationTest {
+
+    @Test
+    void incrementalMatchesRebuilt() {
+        Random random = new Random(20);
+        Evaluation incremental = new Evaluation();
+        Evaluation rebuilt = new Evaluation();
+        MoveList moves = new MoveList();
+
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            for (int game = 0; game < 20; game++) {
+                Position position = Position.fromFen(reference.fen());
+                incremental.reset(position);
+                int played = 0;
+
+                // Walk out and back so unmake is checked too
+                for (; played < 60; played++) {
+                    MoveGenerator.generateLegalMoves(position, moves);
+                    if (moves.isEmpty()) break;
+                    int move = moves.get(random.nextInt(moves.size()));
+                    incremental.makeMove(position, move);
+                    position.makeMove(move);
+
+                    rebuilt.reset(position);
+                    assertEquals(rebuilt.evaluate(position), incremental.evaluate(position), position.toFen());
+                }
+                for (; played > 0; played--) {
+                    position.unmakeMove();
+                    incremental.unmakeMove();
+
+                    rebuilt.reset(position);
+                    assertEquals(rebuilt.evaluate(position), incremental.evaluate(position), position.toFen());
+                }
+            }
+        }
+    }
+
+
+
+    @Test
+    void mirroredPositionScoresTheSame() {
+        Evaluation evaluation = new Evaluation();
+        Position white = Position.fromFen("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+        Position black = Position.fromFen("rnbqk2r/pppp1ppp/5n2/2b1p3/4P3/2N2N2/PPPP1PPP/R1BQKB1R b KQkq - 4 4");
+
+        evaluation.reset(white);
+        int score = evaluation.evaluate(white);
+        evaluation.reset(black);
+        assertEquals(score, evaluation.evaluate(black));
+    }
+}
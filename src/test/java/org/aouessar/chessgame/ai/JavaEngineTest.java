@@ -0,0 +1,65 @@
+package org.aouessar.chessgame.ai;
+
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Position;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lazy SMP smoke test: helpers run alongside the main search and stay within the skill's node budget.
+ */
+class JavaEngineTest {
+
+    private static final String MIDDLEGAME = "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4";
+
+    private final JavaEngine engine = new JavaEngine();
+
+
+
+    @AfterEach
+    void close() {
+        engine.close();
+    }
+
+
+
+    @Test
+    void twoThreadsReturnALegalMove() {
+        engine.setHashSize(16);
+        engine.setThreads(2);
+        Position position = Position.fromFen(MIDDLEGAME);
+        int move = engine.getBestMove(position, 5, JavaEngine.MAX_SKILL);
+
+        MoveList legalMoves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, legalMoves);
+        assertNotEquals(Move.NONE, move);
+        assertTrue(legalMoves.contains(move), Move.toUci(move));
+    }
+
+
+
+    @Test
+    void helpersShareTheSkillBudget() {
+        engine.setHashSize(16);
+        engine.setThreads(4);
+        engine.getBestMove(Position.fromFen(MIDDLEGAME), 30, 2);
+
+        // Every search stops a few nodes past its share, far from four full budgets
+        assertTrue(engine.getNodes() < JavaEngine.nodeLimit(2) * 2, engine.getNodes() + " nodes");
+    }
+
+
+
+    @Test
+    void moreThreadsThanCoresAreAllowed() {
+        engine.setThreads(Runtime.getRuntime().availableProcessors() + 1);
+        assertThrows(IllegalArgumentException.class, () -> engine.setThreads(JavaEngine.MAX_THREADS + 1));
+        assertThrows(IllegalArgumentException.class, () -> engine.setThreads(0));
+    }
+}
@@ -0,0 +1,91 @@
+package org.aouessar.chessgame.ai;
+
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Position;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Shortest mates are found with a line that ends in mate, and positions without one are refuted.
+ */
+class MateSolverTest {
+
+    private final MateSolver solver = new MateSolver(16);
+
+
+
+    @Test
+    void mateInOne() {
+        MateSolver.Result result = solve("7k/8/5K2/8/8/8/8/6Q1 w - - 0 1", 1);
+        assertEquals(List.of("g1g7"), uci(result.line()));
+    }
+
+
+
+    @Test
+    void mateInTwo() {
+        // Kb6 and Kc7 both work, the rook mates on the back rank next
+        solve("k7/8/2K5/8/8/8/8/7R w - - 0 1", 2);
+    }
+
+
+
+    @Test
+    void mateInThree() {
+        // The king is dragged out: Bc5+ Kxc5 Qb6+ Kd5 Qd6#
+        MateSolver.Result result = solve("r1b1kb1r/pppp1ppp/5q2/4n3/3KP3/2N3PN/PPP4P/R1BQ1B1R b kq - 0 1", 3);
+        assertEquals("f8c5", Move.toUci(result.line().get(0)));
+    }
+
+
+
+    @Test
+    void bareKingsHaveNoMate() {
+        MateSolver.Result result = solver.solve(Position.fromFen("8/8/3k4/8/8/4K3/8/8 w - - 0 1"), 3, Long.MAX_VALUE);
+        assertEquals(MateSolver.Status.NO_MATE, result.status());
+        assertTrue(result.line().isEmpty());
+    }
+
+
+
+    @Test
+    void rookAloneCannotMateThatFast() {
+        MateSolver.Result result = solver.solve(Position.fromFen("8/8/8/8/8/2k5/8/K1R5 w - - 0 1"), 4, Long.MAX_VALUE);
+        assertEquals(MateSolver.Status.NO_MATE, result.status());
+    }
+
+
+
+    /**
+     * Solves with a longer limit than needed, the shortest mate must still come first, then plays the line.
+     */
+    private MateSolver.Result solve(String fen, int moves) {
+        Position position = Position.fromFen(fen);
+        MateSolver.Result result = solver.solve(position, moves + 1, Long.MAX_VALUE);
+        assertEquals(MateSolver.Status.MATE, result.status());
+        assertEquals(moves, result.moves());
+        assertEquals(2 * moves - 1, result.line().size());
+
+        MoveList legalMoves = new MoveList();
+        for (int move : result.line()) {
+            MoveGenerator.generateLegalMoves(position, legalMoves);
+            assertTrue(legalMoves.contains(move), Move.toUci(move));
+            position.makeMove(move);
+        }
+        MoveGenerator.generateLegalMoves(position, legalMoves);
+        assertTrue(legalMoves.isEmpty() && position.isInCheck(position.getSideToMove()), position.toFen());
+        return result;
+    }
+
+
+
+    private static List<String> uci(List<Integer> line) {
+        return line.stream().map(Move::toUci).toList();
+    }
+}
@@ -0,0 +1,62 @@
+package org.aouessar.chessgame.ai;
+
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.Position;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Mate scores count the plies to the mate, forced draws score 0.
+ */
+class SearchTest {
+
+    private final Search search = new Search(new TranspositionTable(16));
+
+
+
+    @Test
+    void findsMateInOne() {
+        // Back rank mate, the king is boxed in by its own pawns
+        int move = search.search(Position.fromFen("7k/5ppp/8/4Q3/8/8/rrr2PPP/6K1 w - - 0 1"), 4, Long.MAX_VALUE);
+        assertEquals("e5e8", Move.toUci(move));
+        assertEquals(Search.MATE - 1, search.getScore());
+    }
+
+
+
+    @Test
+    void findsMateInTwo() {
+        // Rook ladder: Rb7 (or Ra7) first, the other rook mates on the back rank next
+        search.search(Position.fromFen("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1"), 6, Long.MAX_VALUE);
+        assertEquals(Search.MATE - 3, search.getScore());
+    }
+
+
+
+    @Test
+    void seesItsOwnMate() {
+        // Whatever black plays, the rook mates on the fourth ply
+        search.search(Position.fromFen("6k1/8/6K1/8/8/8/8/7R b - - 0 1"), 6, Long.MAX_VALUE);
+        assertEquals(-(Search.MATE - 4), search.getScore());
+    }
+
+
+
+    @Test
+    void perpetualCheckScoresZero() {
+        // Three rooks down, white saves the game with Qf6+ Kg8 Qg5+ Kh8 Qf6+ forever
+        int move = search.search(Position.fromFen("5r1k/5p1p/8/8/5Q2/8/rr3PPP/6K1 w - - 0 1"), 8, Long.MAX_VALUE);
+        assertEquals("f4f6", Move.toUci(move));
+        assertEquals(0, search.getScore());
+    }
+
+
+
+    @Test
+    void stalemateHasNoMove() {
+        int move = search.search(Position.fromFen("k7/P7/1K6/8/8/8/8/8 b - - 0 1"), 4, Long.MAX_VALUE);
+        assertEquals(Move.NONE, move);
+        assertEquals(0, search.getScore());
+    }
+}
@@ -0,0 +1,75 @@
+package org.aouessar.chessgame.ai;
+
+import org.aouessar.chessgame.core.Move;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Entries read back as stored, mate scores move with the ply and deeper entries of the current search stay.
+ */
+class TranspositionTableTest {
+
+    // A 1 MB table has 2^16 slots, keys this far apart share one
+    private static final long SAME_SLOT = 1L << 16;
+
+    private static final long KEY = 0x9D39247E33776D41L;
+
+    private final TranspositionTable table = new TranspositionTable(1);
+
+    private final int move = Move.of(12, 28);
+
+
+
+    @Test
+    void storedEntryReadsBack() {
+        table.store(KEY, move, -35, 7, TranspositionTable.LOWER, 0);
+
+        long entry = table.probe(KEY);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(-35, TranspositionTable.score(entry, 0));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(TranspositionTable.MISS, table.probe(KEY + SAME_SLOT));
+    }
+
+
+
+    @Test
+    void mateScoresAreRelativeToThePosition() {
+        // Mate in 5 plies seen from ply 3 is mate in 2 plies from the stored position, 3 plies seen from ply 1
+        table.store(KEY, move, Search.MATE - 5, 4, TranspositionTable.EXACT, 3);
+        assertEquals(Search.MATE - 3, TranspositionTable.score(table.probe(KEY), 1));
+
+        table.store(KEY, move, -(Search.MATE - 6), 4, TranspositionTable.EXACT, 2);
+        assertEquals(-(Search.MATE - 4), TranspositionTable.score(table.probe(KEY), 0));
+    }
+
+
+
+    @Test
+    void deeperEntryOfTheSearchIsKept() {
+        table.store(KEY, move, 10, 8, TranspositionTable.EXACT, 0);
+        table.store(KEY + SAME_SLOT, move, 20, 3, TranspositionTable.EXACT, 0);
+        assertEquals(TranspositionTable.MISS, table.probe(KEY + SAME_SLOT));
+        assertEquals(8, TranspositionTable.depth(table.probe(KEY)));
+
+        // Entries of an earlier search give way whatever their depth
+        table.newSearch();
+        table.store(KEY + SAME_SLOT, move, 20, 3, TranspositionTable.EXACT, 0);
+        assertEquals(20, TranspositionTable.score(table.probe(KEY + SAME_SLOT), 0));
+        assertEquals(TranspositionTable.MISS, table.probe(KEY));
+    }
+
+
+
+    @Test
+    void failLowKeepsTheKnownMove() {
+        table.store(KEY, move, 50, 5, TranspositionTable.EXACT, 0);
+        table.store(KEY, Move.NONE, -20, 6, TranspositionTable.UPPER, 0);
+
+        long entry = table.probe(KEY);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(6, TranspositionTable.depth(entry));
+    }
+}
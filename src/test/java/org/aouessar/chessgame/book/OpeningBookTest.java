@@ -0,0 +1,75 @@
+package org.aouessar.chessgame.book;
+
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.Position;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reads {@code book/tiny.bin}, six entries sorted by key: the start position with e2e4 (3), d2d4 (1) and the
+ * illegal e2e5, after 1. e4 e7e5 (2) and c7c5 (1), under a key with the top bit set, and castling written e1h1
+ * after 1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5.
+ */
+class OpeningBookTest {
+
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static OpeningBook book;
+
+
+
+    @BeforeAll
+    static void open() throws Exception {
+        book = new OpeningBook(Path.of(OpeningBookTest.class.getResource("/book/tiny.bin").toURI()));
+    }
+
+
+
+    @Test
+    void entries() {
+        assertEquals(6, book.getCount());
+        // The illegal entry is dropped
+        assertEquals(List.of("e2e4 3", "d2d4 1"), describe(START));
+        assertEquals(List.of("e7e5 2", "c7c5 1"), describe("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1"));
+        assertEquals(List.of(), describe("rnbqkbnr/pppppppp/8/8/3P4/8/PPP1PPPP/RNBQKBNR b KQkq - 0 1"));
+    }
+
+
+
+    @Test
+    void castlingIsKingTakesRook() {
+        Position position = Position.fromFen("r1bqk1nr/pppp1ppp/2n5/2b1p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+        List<OpeningBook.Entry> entries = book.entries(position);
+        assertEquals(1, entries.size());
+        assertTrue(Move.isCastling(entries.get(0).move()));
+        assertEquals("e1g1", Move.toUci(entries.get(0).move()));
+        assertEquals(entries.get(0).move(), book.pickMove(position));
+    }
+
+
+
+    @Test
+    void pickMove() {
+        Position start = Position.fromFen(START);
+        Set<String> picked = new TreeSet<>();
+        for (int i = 0; i < 200; i++) {
+            picked.add(Move.toUci(book.pickMove(start)));
+        }
+        assertEquals(Set.of("d2d4", "e2e4"), picked);
+        assertEquals(Move.NONE, book.pickMove(Position.fromFen("rnbqkbnr/pppppppp/8/8/3P4/8/PPP1PPPP/RNBQKBNR b KQkq - 0 1")));
+    }
+
+
+
+    private static List<String> describe(String fen) {
+        return book.entries(Position.fromFen(fen)).stream().map(entry -> Move.toUci(entry.move()) + " " + entry.weight()).toList();
+    }
+}
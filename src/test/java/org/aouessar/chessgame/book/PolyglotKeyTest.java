@@ -0,0 +1,65 @@
+package org.aouessar.chessgame.book;
+
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Position;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The reference keys of the Polyglot book format, reached by playing the moves and from the FEN alike.
+ */
+class PolyglotKeyTest {
+
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+
+
+    @Test
+    void startPosition() {
+        assertEquals(0x463b96181691fc9cL, PolyglotKey.of(Position.fromFen(START)));
+    }
+
+
+
+    @Test
+    void kingWalk() {
+        Position position = Position.fromFen(START);
+        assertAfter(position, "e2e4", 0x823c9b50fd114196L, "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+        assertAfter(position, "d7d5", 0x0756b94461c50fb0L, "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2");
+        assertAfter(position, "e4e5", 0x662fafb965db29d4L, "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2");
+        // The en passant file counts once a pawn can take
+        assertAfter(position, "f7f5", 0x22a48b5a8e47ff78L, "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3");
+        assertAfter(position, "e1e2", 0x652a607ca3f242c1L, "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3");
+        assertAfter(position, "e8f7", 0x00fdd303c946bdd9L, "rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4");
+    }
+
+
+
+    @Test
+    void enPassantAndRookMoves() {
+        Position position = Position.fromFen(START);
+        for (String move : new String[] {"a2a4", "b7b5", "h2h4", "b5b4"}) play(position, move);
+        assertAfter(position, "c2c4", 0x3c8123ea7b067637L, "rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3");
+        play(position, "b4c3");
+        assertAfter(position, "a1a3", 0x5c3f9b829b279560L, "rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4");
+    }
+
+
+
+    private static void assertAfter(Position position, String move, long key, String fen) {
+        play(position, move);
+        assertEquals(key, PolyglotKey.of(position), move);
+        assertEquals(key, PolyglotKey.of(Position.fromFen(fen)), fen);
+    }
+
+
+
+    private static void play(Position position, String uci) {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, moves);
+        position.makeMove(Move.fromUci(uci, moves));
+    }
+}
@@ -0,0 +1,31 @@
+package org.aouessar.chessgame.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Node counts of the reference positions, with and without the subtree cache.
+ */
+class PerftTest {
+
+    @Test
+    void referencePositionsMatch() {
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            Perft perft = new Perft(Runtime.getRuntime().availableProcessors(), 16);
+            assertEquals(reference.nodes(), perft.perft(Position.fromFen(reference.fen()), reference.depth()), reference.name());
+        }
+    }
+
+
+
+    @Test
+    void cacheDoesNotChangeShallowCounts() {
+        Perft plain = new Perft(Runtime.getRuntime().availableProcessors(), 0);
+        Perft cached = new Perft(Runtime.getRuntime().availableProcessors(), 16);
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            Position position = Position.fromFen(reference.fen());
+            assertEquals(plain.divide(position, 3), cached.divide(position, 3), reference.name());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.aouessar.chessgame.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * FEN parsing keeps only the castling rights the board can honour and needs both kings.
+ */
+class PositionTest {
+
+    @Test
+    void rightsWithoutTheirKingOrRookAreDropped() {
+        // White rook missing from h1
+        Position position = Position.fromFen("r3k2r/8/8/8/8/8/8/R3K3 w KQkq - 0 1");
+        assertEquals("Qkq", position.toFen().split(" ")[2]);
+
+        // Black king moved off e8
+        position = Position.fromFen("r2k3r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertEquals("KQ", position.toFen().split(" ")[2]);
+    }
+
+
+
+    @Test
+    void illegalCastleIsNotGenerated() {
+        // The FEN claims kingside rights but the rook stands on g1, castling would move a king onto it
+        Position position = Position.fromFen("4k3/8/8/8/8/8/8/4K1R1 w K - 0 1");
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            assertFalse(Move.isCastling(moves.get(i)), Move.toUci(moves.get(i)));
+        }
+    }
+
+
+
+    @Test
+    void eachSideNeedsOneKing() {
+        assertThrows(IllegalArgumentException.class, () -> Position.fromFen("8/8/8/8/8/8/8/4K3 w - - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Position.fromFen("4k3/8/8/8/8/8/8/3KK3 w - - 0 1"));
+    }
+}
@@ -0,0 +1,121 @@
+package org.aouessar.chessgame.tablebase;
+
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Probes the fixtures of {@link SyzygyWriter}: known results and distances, every result following from its moves,
+ * and best moves converting the wins within the stored distances.
+ */
+class SyzygyTest {
+
+    private static Syzygy syzygy;
+
+
+
+    @BeforeAll
+    static void open() throws Exception {
+        syzygy = new Syzygy(Path.of(SyzygyTest.class.getResource("/syzygy").toURI()));
+    }
+
+
+
+    @Test
+    void knownPositions() {
+        assertEquals(3, syzygy.getMaxPieces());
+        assertProbe("7k/8/6K1/8/8/8/Q7/8 w - - 0 1", Syzygy.WIN, 1, "a2a8");
+        assertProbe("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1", Syzygy.LOSS, -1, null);
+        // Pawnless, so the distance to zeroing is the distance to mate
+        assertProbe("8/8/8/8/3k4/8/8/R3K3 w - - 0 1", Syzygy.WIN, 27, "e1e2");
+        // Colors swapped, the file sees the rook's side as white
+        assertProbe("8/8/8/8/3K4/8/8/r3k3 b - - 0 1", Syzygy.WIN, 27, "e1e2");
+        assertProbe("8/8/8/8/8/5K2/8/5k1R b - - 0 1", Syzygy.LOSS, -1, null);
+
+        assertProbe("8/4P3/8/4K3/8/8/8/k7 w - - 0 1", Syzygy.WIN, 1, "e7e8q");
+        assertProbe("8/8/8/8/8/4k3/4P3/4K3 w - - 0 1", Syzygy.DRAW, 0, null);
+        assertProbe("k7/8/8/8/8/8/P7/K7 w - - 0 1", Syzygy.DRAW, 0, null);
+        // Distances are stored with the stronger side to move, the other one searches a ply
+        assertProbe("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1", Syzygy.LOSS, -4, null);
+        assertEquals(Syzygy.NOT_FOUND, syzygy.probeWdl(Position.fromFen("4k3/8/8/8/8/8/8/RR2K3 w - - 0 1")));
+    }
+
+
+
+    @Test
+    void resultsFollowFromTheirMoves() {
+        for (String name : new String[] {"KQvK", "KRvK", "KPvK"}) {
+            MoveList moves = new MoveList();
+            TablebaseTest.forEachPosition(Material.parse(name), position -> {
+                MoveGenerator.generateLegalMoves(position, moves);
+                int expected = moves.isEmpty() && !position.isInCheck(position.getSideToMove()) ? Syzygy.DRAW : Syzygy.LOSS;
+                for (int i = 0; i < moves.size(); i++) {
+                    position.makeMove(moves.get(i));
+                    expected = Math.max(expected, -syzygy.probeWdl(position));
+                    position.unmakeMove();
+                }
+                assertEquals(expected, syzygy.probeWdl(position), position.toFen());
+            });
+        }
+    }
+
+
+
+    @Test
+    void bestMovesConvert() {
+        assertConverts("8/8/8/8/3k4/8/8/R3K3 w - - 0 1");
+        assertConverts("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1");
+        assertConverts("8/8/8/8/8/k7/7P/7K w - - 0 1");
+    }
+
+
+
+    private static void assertProbe(String fen, int wdl, int dtz, String bestMove) {
+        Position position = Position.fromFen(fen);
+        assertEquals(wdl, syzygy.probeWdl(position), fen);
+        assertEquals(dtz, syzygy.probeDtz(position), fen);
+        if (bestMove != null) assertEquals(bestMove, Move.toUci(syzygy.bestMove(position)), fen);
+    }
+
+
+
+    /**
+     * Both sides play the best move until mate: the distance to zeroing falls by one every ply,
+     * and the result never changes.
+     */
+    private static void assertConverts(String fen) {
+        Position position = Position.fromFen(fen);
+        int winner = position.getSideToMove();
+        assertEquals(Syzygy.WIN, syzygy.probeWdl(position), fen);
+
+        for (int ply = 0; ply < 200; ply++) {
+            if (!MoveGenerator.hasLegalMove(position)) {
+                assertTrue(position.isInCheck(winner ^ 1), position.toFen());
+                assertFalse(position.getSideToMove() == winner, position.toFen());
+                return;
+            }
+            int dtz = syzygy.probeDtz(position);
+            int move = syzygy.bestMove(position);
+            boolean zeroing = Move.isPromotion(move) || position.pieceAt(Move.to(move)) != Pieces.NONE
+                    || Pieces.type(position.pieceAt(Move.from(move))) == Pieces.PAWN;
+            position.makeMove(move);
+
+            int expected = position.getSideToMove() == winner ? Syzygy.WIN : Syzygy.LOSS;
+            assertEquals(expected, syzygy.probeWdl(position), position.toFen());
+            if (!zeroing && MoveGenerator.hasLegalMove(position)) {
+                assertEquals(-(dtz - Integer.signum(dtz)), syzygy.probeDtz(position), position.toFen());
+            }
+        }
+        throw new AssertionError("No mate from " + fen);
+    }
+}
@@ -0,0 +1,500 @@
+package org.aouessar.chessgame.tablebase;
+
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Writes the Syzygy fixtures of the tests from the distance-to-mate tables of {@link TablebaseGenerator}.
+ * <p>
+ * This is not the official generator, only a writer of its file format for tables of three pieces: values are exact
+ * everywhere, where the official files leave some free, and the compression is a plain pairing then Huffman pass.
+ * Indexes come from {@link SyzygyTable} itself, read from a file holding the header alone, so the fixtures check
+ * the decoding and the probing rules rather than the indexing against the official files.
+ * <p>
+ * {@code main} regenerates them: {@code SyzygyWriter src/test/resources/syzygy}.
+ */
+final class SyzygyWriter {
+
+    // KPvK with every table its promotions lead to
+    static final String[] TABLES = {"KQvK", "KRvK", "KBvK", "KNvK", "KPvK"};
+
+    private static final int[][] MAGICS = {{0x71, 0xE8, 0x23, 0x5D}, {0xD7, 0x66, 0x0C, 0xA5}};
+
+    private static final int BLOCK_BITS = 6;
+
+    private static final int SPAN_BITS = 10;
+
+    // Symbols are 12 bits, 0xFFF marks a value in the pair tree
+    private static final int MAX_SYMBOLS = 0xFFF;
+
+    private static final int MAX_EXPANSION = 256;
+
+    private static final int MAX_BLOCK_VALUES = 1 << 15;
+
+    private static final int MAX_CODE_LENGTH = 32;
+
+    // DTZ flags: distances in plies for wins and losses, white to move stored
+    private static final int PLIES = 4 | 8;
+
+    private static final int SINGLE_VALUE = 128;
+
+    // No position has the index, or its value is never read
+    private static final int FREE = -1;
+
+
+
+    private SyzygyWriter() {
+    }
+
+
+
+    public static void main(String[] args) throws IOException {
+        Path output = Path.of(args.length > 0 ? args[0] : "src/test/resources/syzygy");
+        Path distances = Files.createTempDirectory("dtm");
+        new TablebaseGenerator(distances, Runtime.getRuntime().availableProcessors()).generate(Material.parse("KPvK"));
+        Tablebase tablebase = new Tablebase(distances);
+
+        Files.createDirectories(output);
+        for (String name : TABLES) {
+            write(tablebase, Material.parse(name), output);
+        }
+    }
+
+
+
+    private static void write(Tablebase tablebase, Material material, Path output) throws IOException {
+        String name = material.getName();
+        String white = name.substring(1, name.indexOf('v'));
+        boolean pawns = white.contains("P");
+        int files = pawns ? 4 : 1;
+        int piece = "PNBRQ".indexOf(white.charAt(0)) + 1;
+        // Syzygy codes, color * 8 + type from pawn = 1 to king = 6, the leading group first
+        int[] pieces = pawns ? new int[] {piece, 6, 14} : new int[] {6, piece, 14};
+        long size = pawns ? 6 * 63 * 62 : 31332;
+
+        Positions positions = new Positions(tablebase, material);
+        for (int type = SyzygyTable.WDL; type <= SyzygyTable.DTZ; type++) {
+            int sides = type == SyzygyTable.WDL ? 2 : 1;
+            byte[] header = header(type, pieces, files, sides, pawns);
+
+            Path skeleton = Files.createTempFile(name, ".skeleton");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(header);
+            for (int i = 0; i < files * sides; i++) {
+                out.write(SINGLE_VALUE);
+                out.write(0);
+            }
+            out.write(new byte[16]);
+            Files.write(skeleton, out.toByteArray());
+            SyzygyTable table = new SyzygyTable(skeleton, type, white, "");
+
+            int[][][] values = new int[sides][files][(int) size];
+            for (int[][] side : values) {
+                for (int[] file : side) {
+                    Arrays.fill(file, FREE);
+                }
+            }
+            int[] stored = new int[2];
+            Position position = new Position();
+            for (int index = 0; index < material.getSize(); index++) {
+                if (!positions.at(index, position)) continue;
+                long at = table.index(position, stored);
+                int value;
+                if (type == SyzygyTable.WDL) {
+                    value = positions.wdl[index] + 2;
+                } else {
+                    if (stored[0] != 0 || positions.wdl[index] == 0) continue;
+                    value = positions.distances[index] - 1;
+                }
+                int previous = values[stored[0]][stored[1]][(int) at];
+                if (previous != FREE && previous != value) throw new IllegalStateException("Index clash at " + position.toFen());
+                values[stored[0]][stored[1]][(int) at] = value;
+            }
+
+            List<Encoded> encoded = new ArrayList<>();
+            for (int f = 0; f < files; f++) {
+                for (int side = 0; side < sides; side++) {
+                    encoded.add(encode(values[side][f], type == SyzygyTable.DTZ ? PLIES : 0));
+                }
+            }
+            out = new ByteArrayOutputStream();
+            out.write(header);
+            for (Encoded e : encoded) out.write(e.record);
+            if (type == SyzygyTable.DTZ && out.size() % 2 == 1) out.write(0);
+            for (Encoded e : encoded) out.write(e.sparseIndex);
+            for (Encoded e : encoded) out.write(e.blockLengths);
+            for (Encoded e : encoded) {
+                while (out.size() % 64 != 0) out.write(0);
+                out.write(e.data);
+            }
+            // The decoder reads a few bytes past the last block
+            out.write(new byte[16]);
+            Files.write(output.resolve(name + (type == SyzygyTable.WDL ? ".rtbw" : ".rtbz")), out.toByteArray());
+            Files.delete(skeleton);
+        }
+    }
+
+
+
+    private static byte[] header(int type, int[] pieces, int files, int sides, boolean pawns) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int b : MAGICS[type]) out.write(b);
+        out.write((sides == 2 ? 1 : 0) | (pawns ? 2 : 0));
+        for (int f = 0; f < files; f++) {
+            // The leading group comes first in the index for both sides
+            out.write(0);
+            for (int piece : pieces) out.write(piece | piece << 4);
+        }
+        if (out.size() % 2 == 1) out.write(0);
+        return out.toByteArray();
+    }
+
+
+
+    private record Encoded(byte[] record, byte[] sparseIndex, byte[] blockLengths, byte[] data) {
+    }
+
+
+
+    private static Encoded encode(int[] values, int flags) {
+        int known = FREE;
+        for (int value : values) {
+            if (value != FREE) {
+                known = value;
+                break;
+            }
+        }
+        // Free values repeat their neighbor, which pairs best
+        int[] sequence = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != FREE) known = values[i];
+            sequence[i] = Math.max(known, 0);
+        }
+
+        if (Arrays.stream(sequence).distinct().count() == 1) {
+            return new Encoded(new byte[] {(byte) (flags | SINGLE_VALUE), (byte) sequence[0]}, new byte[0], new byte[0], new byte[0]);
+        }
+
+        // Leaves first, then every pair replaced by a new symbol while it pays off
+        List<int[]> symbols = new ArrayList<>();
+        int[] leaves = new int[Arrays.stream(sequence).max().orElse(0) + 1];
+        Arrays.fill(leaves, -1);
+        for (int i = 0; i < sequence.length; i++) {
+            if (leaves[sequence[i]] < 0) {
+                leaves[sequence[i]] = symbols.size();
+                symbols.add(new int[] {sequence[i], -1, 1});
+            }
+            sequence[i] = leaves[sequence[i]];
+        }
+        int[] counts = new int[MAX_SYMBOLS * MAX_SYMBOLS];
+        while (symbols.size() < MAX_SYMBOLS) {
+            int best = -1;
+            int previous = -1;
+            for (int i = 0; i + 1 < sequence.length; i++) {
+                int pair = sequence[i] * MAX_SYMBOLS + sequence[i + 1];
+                // Runs like aaa hold one aa, not two
+                if (pair == previous) {
+                    previous = -1;
+                    continue;
+                }
+                previous = pair;
+                if (symbols.get(sequence[i])[2] + symbols.get(sequence[i + 1])[2] > MAX_EXPANSION) continue;
+                counts[pair]++;
+                if (best < 0 || counts[pair] > counts[best] || counts[pair] == counts[best] && pair < best) best = pair;
+            }
+            int occurrences = best < 0 ? 0 : counts[best];
+            for (int i = 0; i + 1 < sequence.length; i++) {
+                counts[sequence[i] * MAX_SYMBOLS + sequence[i + 1]] = 0;
+            }
+            if (occurrences < 4) break;
+
+            int left = best / MAX_SYMBOLS;
+            int right = best % MAX_SYMBOLS;
+            int symbol = symbols.size();
+            symbols.add(new int[] {left, right, symbols.get(left)[2] + symbols.get(right)[2]});
+            int length = 0;
+            for (int i = 0; i < sequence.length; i++) {
+                if (i + 1 < sequence.length && sequence[i] == left && sequence[i + 1] == right) {
+                    sequence[length++] = symbol;
+                    i++;
+                } else {
+                    sequence[length++] = sequence[i];
+                }
+            }
+            sequence = Arrays.copyOf(sequence, length);
+        }
+
+        int[] lengths = huffman(sequence, symbols.size());
+        int maxLength = Arrays.stream(lengths).max().orElse(0);
+        int minLength = Arrays.stream(lengths).filter(length -> length > 0).min().orElse(0);
+        if (maxLength > MAX_CODE_LENGTH) throw new IllegalStateException("Code longer than " + MAX_CODE_LENGTH + " bits");
+
+        // Longest codes get the lowest symbols, symbols without a code come last
+        Integer[] order = new Integer[symbols.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.<Integer>comparingInt(s -> lengths[s] == 0 ? Integer.MAX_VALUE : -lengths[s]).thenComparingInt(s -> s));
+        int[] renamed = new int[symbols.size()];
+        for (int i = 0; i < order.length; i++) renamed[order[i]] = i;
+
+        int[] lengthCounts = new int[maxLength + 2];
+        for (int length : lengths) {
+            if (length > 0) lengthCounts[length]++;
+        }
+        long[] firstCode = new long[maxLength + 2];
+        int[] lowestSymbol = new int[maxLength + 2];
+        for (int length = maxLength - 1; length >= minLength; length--) {
+            long sum = firstCode[length + 1] + lengthCounts[length + 1];
+            if (sum % 2 != 0) throw new IllegalStateException("Incomplete code");
+            firstCode[length] = sum / 2;
+            lowestSymbol[length] = lowestSymbol[length + 1] + lengthCounts[length + 1];
+        }
+
+        // Blocks of whole symbols
+        int blockSize = 1 << BLOCK_BITS;
+        List<byte[]> blocks = new ArrayList<>();
+        List<Integer> blockValues = new ArrayList<>();
+        byte[] block = new byte[blockSize];
+        int bits = 0;
+        int blockCount = 0;
+        for (int symbol : sequence) {
+            int length = lengths[symbol];
+            int expansion = symbols.get(symbol)[2];
+            if (bits + length > blockSize * 8 || blockCount + expansion > MAX_BLOCK_VALUES) {
+                blocks.add(block);
+                blockValues.add(blockCount);
+                block = new byte[blockSize];
+                bits = 0;
+                blockCount = 0;
+            }
+            long code = firstCode[length] + renamed[symbol] - lowestSymbol[length];
+            for (int bit = length - 1; bit >= 0; bit--, bits++) {
+                if ((code >>> bit & 1) != 0) block[bits >>> 3] |= (byte) (0x80 >>> (bits & 7));
+            }
+            blockCount += expansion;
+        }
+        blocks.add(block);
+        blockValues.add(blockCount);
+
+        long[] blockStarts = new long[blocks.size()];
+        for (int i = 1; i < blockStarts.length; i++) {
+            blockStarts[i] = blockStarts[i - 1] + blockValues.get(i - 1);
+        }
+
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        record.write(flags);
+        record.write(BLOCK_BITS);
+        record.write(SPAN_BITS);
+        record.write(0);
+        writeInt(record, blocks.size());
+        record.write(maxLength);
+        record.write(minLength);
+        for (int length = minLength; length <= maxLength; length++) writeShort(record, lowestSymbol[length]);
+        writeShort(record, symbols.size());
+        for (int i = 0; i < order.length; i++) {
+            int[] symbol = symbols.get(order[i]);
+            int left = symbol[1] < 0 ? symbol[0] : renamed[symbol[0]];
+            int right = symbol[1] < 0 ? 0xFFF : renamed[symbol[1]];
+            record.write(left & 0xFF);
+            record.write(left >>> 8 & 0xF | (right & 0xF) << 4);
+            record.write(right >>> 4);
+        }
+        if (symbols.size() % 2 == 1) record.write(0);
+
+        // Entry k points at value k * span + span / 2
+        long span = 1L << SPAN_BITS;
+        ByteArrayOutputStream sparseIndex = new ByteArrayOutputStream();
+        for (long k = 0; k < (values.length + span - 1) / span; k++) {
+            long at = k * span + span / 2;
+            int b = 0;
+            while (b + 1 < blockStarts.length && blockStarts[b + 1] <= at) b++;
+            writeInt(sparseIndex, b);
+            writeShort(sparseIndex, (int) (at - blockStarts[b]));
+        }
+
+        ByteArrayOutputStream blockLengths = new ByteArrayOutputStream();
+        for (int count : blockValues) writeShort(blockLengths, count - 1);
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (byte[] b : blocks) data.write(b, 0, b.length);
+        return new Encoded(record.toByteArray(), sparseIndex.toByteArray(), blockLengths.toByteArray(), data.toByteArray());
+    }
+
+
+
+    /**
+     * @return the code length of every symbol, 0 for those missing from the sequence
+     */
+    private static int[] huffman(int[] sequence, int symbolCount) {
+        long[] weights = new long[symbolCount * 2];
+        for (int symbol : sequence) weights[symbol]++;
+        int[] parents = new int[symbolCount * 2];
+        Arrays.fill(parents, -1);
+
+        PriorityQueue<Integer> queue = new PriorityQueue<>(Comparator.<Integer>comparingLong(node -> weights[node]).thenComparingInt(node -> node));
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            if (weights[symbol] > 0) queue.add(symbol);
+        }
+        int[] lengths = new int[symbolCount];
+        if (queue.size() == 1) {
+            lengths[queue.poll()] = 1;
+            return lengths;
+        }
+        int next = symbolCount;
+        while (queue.size() > 1) {
+            int a = queue.poll();
+            int b = queue.poll();
+            weights[next] = weights[a] + weights[b];
+            parents[a] = next;
+            parents[b] = next;
+            queue.add(next++);
+        }
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            if (weights[symbol] == 0) continue;
+            for (int node = symbol; parents[node] >= 0; node = parents[node]) lengths[symbol]++;
+        }
+        return lengths;
+    }
+
+
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value & 0xFF);
+        out.write(value >>> 8 & 0xFF);
+    }
+
+
+
+    private static void writeInt(ByteArrayOutputStream out, long value) {
+        for (int i = 0; i < 4; i++) out.write((int) (value >>> 8 * i) & 0xFF);
+    }
+
+
+
+    /**
+     * Every legal position of a table with its result and, for wins and losses, the plies to the next capture,
+     * pawn move or mate with both sides playing for it: the Syzygy distance to zeroing, where being mated counts 1.
+     */
+    private static final class Positions {
+
+        private final Material material;
+
+        // Indexes of illegal placements
+        private final boolean[] illegal;
+
+        private final int[] wdl;
+
+        private final int[] distances;
+
+
+
+        Positions(Tablebase tablebase, Material material) {
+            this.material = material;
+            int size = material.getSize();
+            this.illegal = new boolean[size];
+            this.wdl = new int[size];
+            this.distances = new int[size];
+
+            Position position = new Position();
+            for (int index = 0; index < size; index++) {
+                illegal[index] = !at(index, position);
+                if (!illegal[index]) wdl[index] = 2 * Integer.signum(tablebase.probe(position));
+            }
+
+            // Moves staying in the table, and whether a capture or pawn move leads to the side to move's result
+            int[][] children = new int[size][];
+            boolean[] zeroing = new boolean[size];
+            MoveList moves = new MoveList();
+            int[] scratch = new int[Material.MAX_PIECES];
+            for (int index = 0; index < size; index++) {
+                if (wdl[index] == 0 || !at(index, position)) continue;
+                MoveGenerator.generateLegalMoves(position, moves);
+                if (moves.isEmpty()) {
+                    distances[index] = 1;
+                    continue;
+                }
+                int[] inside = new int[moves.size()];
+                int count = 0;
+                for (int i = 0; i < moves.size(); i++) {
+                    int move = moves.get(i);
+                    boolean resets = position.pieceAt(Move.to(move)) != Pieces.NONE
+                            || Pieces.type(position.pieceAt(Move.from(move))) == Pieces.PAWN;
+                    position.makeMove(move);
+                    if (resets) {
+                        if (wdl[index] < 0 || Integer.signum(tablebase.probe(position)) < 0) zeroing[index] = true;
+                    } else if (wdl[index] > 0 && position.isInCheck(position.getSideToMove()) && !MoveGenerator.hasLegalMove(position)) {
+                        distances[index] = 1;
+                    } else {
+                        inside[count++] = material.index(position, scratch);
+                    }
+                    position.unmakeMove();
+                }
+                children[index] = Arrays.copyOf(inside, count);
+                if (wdl[index] > 0 && zeroing[index]) distances[index] = 1;
+            }
+
+            // Wins at n take a child lost at n - 1, losses wait for all their children and may come a pass early
+            for (int n = 2, idle = 0; idle < 2; n++) {
+                int found = 0;
+                for (int index = 0; index < size; index++) {
+                    if (children[index] == null || distances[index] != 0) continue;
+                    if (wdl[index] > 0) {
+                        for (int child : children[index]) {
+                            if (wdl[child] < 0 && distances[child] == n - 1) {
+                                distances[index] = n;
+                                found++;
+                                break;
+                            }
+                        }
+                    } else {
+                        int longest = zeroing[index] ? 1 : 0;
+                        for (int child : children[index]) {
+                            if (distances[child] == 0) {
+                                longest = -1;
+                                break;
+                            }
+                            longest = Math.max(longest, distances[child] + 1);
+                        }
+                        if (longest > 0) {
+                            distances[index] = longest;
+                            found++;
+                        }
+                    }
+                }
+                idle = found == 0 ? idle + 1 : 0;
+            }
+            for (int index = 0; index < size; index++) {
+                if (wdl[index] != 0 && distances[index] == 0 && at(index, position)) {
+                    throw new IllegalStateException("No distance for " + position.toFen());
+                }
+            }
+        }
+
+
+
+        /**
+         * Sets the position of the index up.
+         * @return false when the index is no legal position
+         */
+        boolean at(int index, Position position) {
+            int[] pieces = material.getPieces();
+            int[] squares = new int[Material.MAX_PIECES];
+            int side = material.decode(index, squares);
+            if (side < 0 || illegal[index] || !TablebaseTest.isValid(pieces, squares)) return false;
+            position.setUp(pieces, squares, pieces.length, side);
+            return !position.isInCheck(side ^ 1);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.aouessar.chessgame.tablebase;
+
+import org.aouessar.chessgame.ai.Search;
+import org.aouessar.chessgame.core.Move;
+import org.aouessar.chessgame.core.MoveGenerator;
+import org.aouessar.chessgame.core.MoveList;
+import org.aouessar.chessgame.core.Pieces;
+import org.aouessar.chessgame.core.Position;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tables generated from scratch reach the known longest mates, agree with one ply of play everywhere,
+ * and answer a few positions with known results.
+ */
+class TablebaseTest {
+
+    @TempDir
+    static Path directory;
+
+    private static Tablebase tablebase;
+
+
+
+    @BeforeAll
+    static void generate() throws IOException {
+        TablebaseGenerator generator = new TablebaseGenerator(directory, 1);
+        generator.generate(Material.parse("KPvK"));
+        tablebase = new Tablebase(directory);
+    }
+
+
+
+    @Test
+    void longestMates() {
+        assertEquals(20, longestMate(Material.parse("KQvK")));
+        assertEquals(32, longestMate(Material.parse("KRvK")));
+        assertEquals(56, longestMate(Material.parse("KPvK")));
+    }
+
+
+
+    @Test
+    void entriesFollowFromTheirMoves() {
+        for (String name : new String[] {"KQvK", "KRvK", "KPvK"}) {
+            MoveList moves = new MoveList();
+            forEachPosition(Material.parse(name), position -> {
+                MoveGenerator.generateLegalMoves(position, moves);
+                int expected = position.isInCheck(position.getSideToMove()) ? -Search.MATE : 0;
+                if (!moves.isEmpty()) expected = -Search.INFINITY;
+                for (int i = 0; i < moves.size(); i++) {
+                    position.makeMove(moves.get(i));
+                    int score = tablebase.probe(position);
+                    position.unmakeMove();
+                    expected = Math.max(expected, Tablebase.parent(score));
+                }
+                assertEquals(expected, tablebase.probe(position), position.toFen());
+            });
+        }
+    }
+
+
+
+    @Test
+    void knownPositions() {
+        assertEquals(Search.MATE - 1, probe("7k/8/6K1/8/8/8/Q7/8 w - - 0 1"));
+        assertEquals("a2a8", Move.toUci(tablebase.bestMove(Position.fromFen("7k/8/6K1/8/8/8/Q7/8 w - - 0 1"))));
+        assertEquals(-Search.MATE, probe("8/8/8/8/8/5K2/8/5k1R b - - 0 1"));
+        assertEquals(Search.MATE - 27, probe("8/8/8/8/3k4/8/8/R3K3 w - - 0 1"));
+
+        // King in front of the pawn on the sixth rank wins whoever moves, opposition on the second rank does not
+        assertEquals(-(Search.MATE - 24), probe("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1"));
+        assertEquals(0, probe("8/8/8/8/8/4k3/4P3/4K3 w - - 0 1"));
+        // Rook pawn with the defending king in the corner, and a stalemate
+        assertEquals(0, probe("k7/8/8/8/8/8/P7/K7 w - - 0 1"));
+        assertEquals(0, probe("k7/P7/1K6/8/8/8/8/8 b - - 0 1"));
+    }
+
+
+
+    private static int probe(String fen) {
+        return tablebase.probe(Position.fromFen(fen));
+    }
+
+
+
+    private static int longestMate(Material material) {
+        int[] longest = new int[1];
+        forEachPosition(material, position -> {
+            int score = tablebase.probe(position);
+            if (score != 0) longest[0] = Math.max(longest[0], Search.MATE - Math.abs(score));
+        });
+        return longest[0];
+    }
+
+
+
+    /**
+     * Runs over every legal placement of the table, the same position object set up each time.
+     */
+    static void forEachPosition(Material material, Consumer<Position> action) {
+        int[] pieces = material.getPieces();
+        int[] squares = new int[Material.MAX_PIECES];
+        Position position = new Position();
+        for (int index = 0; index < material.getSize(); index++) {
+            int side = material.decode(index, squares);
+            if (side < 0 || !isValid(pieces, squares)) continue;
+            position.setUp(pieces, squares, pieces.length, side);
+            if (!position.isInCheck(side ^ 1)) action.accept(position);
+        }
+    }
+
+
+
+    static boolean isValid(int[] pieces, int[] squares) {
+        long occupied = 0L;
+        for (int slot = 0; slot < pieces.length; slot++) {
+            if ((occupied & 1L << squares[slot]) != 0) return false;
+            if (Pieces.type(pieces[slot]) == Pieces.PAWN && (squares[slot] < 8 || squares[slot] >= 56)) return false;
+            occupied |= 1L << squares[slot];
+        }
+        return true;
+    }
+}